@@ -0,0 +1,50 @@
+package benchmarks;
+
+import backend.datastructure.ConcurrentWeaknessQueue;
+import backend.datastructure.WeaknessHeap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Insert throughput of the concurrent queue; compare runs with -t 1, 2, 4, ...
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ConcurrentIngestionBenchmark {
+    private static final int TOPICS = 100000;
+    
+    private List<WeaknessHeap.HeapNode> nodes;
+    private ConcurrentWeaknessQueue queue;
+    private AtomicInteger next;
+    
+    @Setup(Level.Trial)
+    public void generate() {
+        nodes = CurriculumGenerator.heapNodes(TOPICS, 42);
+    }
+    
+    @Setup(Level.Iteration)
+    public void reset() {
+        queue = new ConcurrentWeaknessQueue();
+        next = new AtomicInteger();
+    }
+    
+    @Benchmark
+    public void insert() {
+        queue.insert(nodes.get((next.getAndIncrement() & Integer.MAX_VALUE) % TOPICS));
+    }
+    
+    /**
+     * Drains the buffered inserts, as the first extractMax after a burst would
+     */
+    @TearDown(Level.Iteration)
+    public void merge() {
+        queue.size();
+    }
+}
@@ -0,0 +1,111 @@
+package benchmarks;
+
+import backend.datastructure.SubjectGraph;
+import backend.datastructure.SyllabusTree;
+import backend.datastructure.WeaknessHeap;
+import backend.model.Prerequisite;
+import backend.model.Subject;
+import backend.model.Topic;
+import java.util.*;
+
+/**
+ * Synthetic curricula for the benchmarks. Everything is seeded, so runs are repeatable.
+ */
+public final class CurriculumGenerator {
+    private CurriculumGenerator() {
+    }
+    
+    public static String subjectId(int i) {
+        return "S" + i;
+    }
+    
+    /**
+     * Acyclic prerequisite graph: every subject takes its prerequisites from the
+     * 'window' subjects before it, about 'prerequisites' of them on average.
+     */
+    public static SubjectGraph graph(int subjects, int prerequisites, int window, long seed) {
+        Random random = new Random(seed);
+        SubjectGraph graph = new SubjectGraph();
+        for (int i = 0; i < subjects; i++) {
+            graph.addSubject(new Subject(subjectId(i), "Subject " + i, random.nextInt(101)));
+        }
+        graph.addPrerequisites(edges(subjects, prerequisites, window, random));
+        return graph;
+    }
+    
+    public static List<Prerequisite> edges(int subjects, int prerequisites, int window, Random random) {
+        List<Prerequisite> edges = new ArrayList<>(subjects * prerequisites);
+        for (int i = 1; i < subjects; i++) {
+            int count = random.nextInt(2 * prerequisites + 1);
+            for (int k = 0; k < count; k++) {
+                int prereq = Math.max(0, i - 1 - random.nextInt(Math.min(i, window)));
+                edges.add(new Prerequisite(subjectId(i), subjectId(prereq)));
+            }
+        }
+        return edges;
+    }
+    
+    /**
+     * Random candidate edges between any two subjects (some would create cycles).
+     */
+    public static List<Prerequisite> candidates(int subjects, int count, long seed) {
+        Random random = new Random(seed);
+        List<Prerequisite> candidates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            candidates.add(new Prerequisite(subjectId(random.nextInt(subjects)), subjectId(random.nextInt(subjects))));
+        }
+        return candidates;
+    }
+    
+    /**
+     * Bushy syllabus: breadth-first, 'fanOut' children per module.
+     */
+    public static SyllabusTree wideTree(int topics, int fanOut, long seed) {
+        Random random = new Random(seed);
+        SyllabusTree tree = new SyllabusTree("Wide");
+        List<Topic> all = new ArrayList<>();
+        all.add(tree.getRoot());
+        for (int i = 1; i < topics; i++) {
+            Topic parent = all.get((i - 1) / fanOut);
+            Topic topic = topic(i, random);
+            parent.addChild(topic);
+            all.add(topic);
+        }
+        return tree;
+    }
+    
+    /**
+     * Deep syllabus: a spine of nested modules, each with one extra leaf.
+     */
+    public static SyllabusTree deepTree(int topics, long seed) {
+        Random random = new Random(seed);
+        SyllabusTree tree = new SyllabusTree("Deep");
+        Topic spine = tree.getRoot();
+        for (int i = 1; i < topics; i++) {
+            Topic topic = topic(i, random);
+            spine.addChild(topic);
+            if (i % 2 == 1) spine = topic;
+        }
+        return tree;
+    }
+    
+    public static String topicId(int i) {
+        return "T" + i;
+    }
+    
+    private static Topic topic(int i, Random random) {
+        Topic topic = new Topic(topicId(i), "Topic " + i);
+        topic.setCompleted(random.nextBoolean());
+        return topic;
+    }
+    
+    public static List<WeaknessHeap.HeapNode> heapNodes(int count, long seed) {
+        Random random = new Random(seed);
+        List<WeaknessHeap.HeapNode> nodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            nodes.add(new WeaknessHeap.HeapNode(topicId(i), "Topic " + i, random.nextDouble() * 100,
+                subjectId(i % 1000), null));
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import backend.datastructure.CompactGraph;
+import backend.datastructure.SubjectGraph;
+import backend.model.Prerequisite;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubjectGraphBenchmark {
+    private static final int CANDIDATES = 1024;
+    
+    @Param({"1000", "10000", "100000"})
+    public int subjects;
+    
+    private SubjectGraph graph;
+    private CompactGraph compact;
+    private List<Prerequisite> candidates;
+    private int next;
+    
+    @Setup(Level.Iteration)
+    public void setUp() {
+        graph = CurriculumGenerator.graph(subjects, 3, 50, 42);
+        compact = graph.freeze();
+        candidates = CurriculumGenerator.candidates(subjects, CANDIDATES, 7);
+        next = 0;
+    }
+    
+    private Prerequisite nextCandidate() {
+        Prerequisite edge = candidates.get(next);
+        next = (next + 1) % CANDIDATES;
+        return edge;
+    }
+    
+    /**
+     * Vetted insert, as the GraphPanel dialog does it
+     */
+    @Benchmark
+    public void addPrerequisite() {
+        Prerequisite edge = nextCandidate();
+        if (graph.canAddDependency(edge.getSubjectId(), edge.getPrerequisiteId())) {
+            graph.addPrerequisite(edge.getSubjectId(), edge.getPrerequisiteId());
+        }
+    }
+    
+    @Benchmark
+    public boolean canAddDependency() {
+        Prerequisite edge = nextCandidate();
+        return graph.canAddDependency(edge.getSubjectId(), edge.getPrerequisiteId());
+    }
+    
+    @Benchmark
+    public boolean[] canAddDependenciesBatch() {
+        return graph.canAddDependencies(candidates);
+    }
+    
+    /**
+     * Cached order, what the dashboard timer reads
+     */
+    @Benchmark
+    public void getTopologicalOrder(Blackhole bh) {
+        bh.consume(graph.getTopologicalOrder().size());
+    }
+    
+    /**
+     * Full Kahn pass over the CSR form
+     */
+    @Benchmark
+    public int[] fullTopologicalSort() {
+        return compact.topologicalOrder();
+    }
+}
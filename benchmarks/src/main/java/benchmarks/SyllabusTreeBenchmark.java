@@ -0,0 +1,64 @@
+package benchmarks;
+
+import backend.datastructure.SyllabusTree;
+import backend.model.Topic;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SyllabusTreeBenchmark {
+    @Param({"wide", "deep"})
+    public String shape;
+    
+    @Param({"1000", "10000"})
+    public int topics;
+    
+    private SyllabusTree tree;
+    private Random random;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        tree = shape.equals("wide")
+            ? CurriculumGenerator.wideTree(topics, 8, 42)
+            : CurriculumGenerator.deepTree(topics, 42);
+        random = new Random(7);
+    }
+    
+    @Benchmark
+    public Topic findTopic() {
+        return tree.findTopic(CurriculumGenerator.topicId(1 + random.nextInt(topics - 1)));
+    }
+    
+    @Benchmark
+    public double getOverallProgress() {
+        return tree.getOverallProgress();
+    }
+    
+    @Benchmark
+    public List<Topic> getPreOrderTraversal() {
+        return tree.getPreOrderTraversal();
+    }
+    
+    @Benchmark
+    public Map<String, Double> progressReport() {
+        return tree.getProgressIndex().getProgressReport();
+    }
+    
+    @Benchmark
+    public long streamCompleted() {
+        return tree.stream().filter(Topic::isCompleted).count();
+    }
+    
+    @Benchmark
+    public long parallelStreamCompleted() {
+        return tree.stream().parallel().filter(Topic::isCompleted).count();
+    }
+}
@@ -0,0 +1,93 @@
+package benchmarks;
+
+import backend.datastructure.PrimitiveMaxHeap;
+import backend.datastructure.WeaknessHeap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WeaknessHeapBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int topics;
+    
+    private List<WeaknessHeap.HeapNode> nodes;
+    private double[] keys;
+    private WeaknessHeap heap;
+    
+    @Setup(Level.Trial)
+    public void generate() {
+        nodes = CurriculumGenerator.heapNodes(topics, 42);
+        keys = new double[topics];
+        for (int i = 0; i < topics; i++) keys[i] = nodes.get(i).getWeaknessScore();
+        
+        // Only read by the benchmarks below, so one fill serves the whole trial
+        heap = new WeaknessHeap();
+        for (WeaknessHeap.HeapNode node : nodes) heap.insert(node);
+    }
+    
+    /**
+     * A full heap for each call of the destructive drain; kept apart so the
+     * other benchmarks do not pay for a refill before every invocation
+     */
+    @State(Scope.Thread)
+    public static class Drain {
+        private WeaknessHeap heap;
+        
+        @Setup(Level.Invocation)
+        public void fill(WeaknessHeapBenchmark benchmark) {
+            heap = new WeaknessHeap();
+            for (WeaknessHeap.HeapNode node : benchmark.nodes) heap.insert(node);
+        }
+    }
+    
+    /**
+     * Builds a heap of all topics from scratch
+     */
+    @Benchmark
+    public WeaknessHeap insertAll() {
+        WeaknessHeap fresh = new WeaknessHeap();
+        for (WeaknessHeap.HeapNode node : nodes) fresh.insert(node);
+        return fresh;
+    }
+    
+    /**
+     * Drains the heap in priority order
+     */
+    @Benchmark
+    public WeaknessHeap.HeapNode extractAll(Drain drain) {
+        WeaknessHeap.HeapNode last = null;
+        while (!drain.heap.isEmpty()) last = drain.heap.extractMax();
+        return last;
+    }
+    
+    /**
+     * Raw primitive core: push every key, then drain (should not allocate)
+     */
+    @Benchmark
+    public int primitiveIngestAndDrain() {
+        PrimitiveMaxHeap core = new PrimitiveMaxHeap(topics);
+        for (int i = 0; i < keys.length; i++) core.push(i, keys[i]);
+        int last = -1;
+        while (!core.isEmpty()) last = core.pop();
+        return last;
+    }
+    
+    @Benchmark
+    public List<WeaknessHeap.HeapNode> getSortedNodes() {
+        return heap.getSortedNodes();
+    }
+    
+    /**
+     * What the planner list shows, without sorting everything
+     */
+    @Benchmark
+    public List<WeaknessHeap.HeapNode> topK50() {
+        return heap.topK(50);
+    }
+}
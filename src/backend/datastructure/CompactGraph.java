@@ -0,0 +1,245 @@
+package backend.datastructure;
+
+import backend.model.Subject;
+import java.util.*;
+
+/**
+ * Frozen, int-indexed form of a SubjectGraph.
+ * Subjects get dense ids and edges are stored in compressed-sparse-row arrays:
+ * the dependents of subject v are targets[offsets[v] .. offsets[v + 1]) and
+ * its prerequisites are sources[reverseOffsets[v] .. reverseOffsets[v + 1]).
+ * The structure arrays are immutable, so forks of one graph can share them;
+ * only the subject slots belong to one graph.
+ */
+public class CompactGraph {
+    private Subject[] subjects;
+    // Open-addressing table of dense id + 1 (0 = empty), keyed by the subject's id
+    private int[] slots;
+    private int[] offsets;
+    private int[] targets;
+    private int[] inDegree;
+    private int[] reverseOffsets;
+    private int[] sources;
+    
+    private CompactGraph(Subject[] subjects, Map<String, List<String>> adjacencyList,
+                         Map<String, List<String>> reverseAdjacencyList) {
+        int n = subjects.length;
+        this.subjects = subjects;
+        int capacity = 2;
+        while (capacity < n * 2) capacity <<= 1;
+        this.slots = new int[capacity];
+        for (int v = 0; v < n; v++) {
+            int i = spread(subjects[v].getId().hashCode()) & (capacity - 1);
+            while (slots[i] != 0) i = (i + 1) & (capacity - 1);
+            slots[i] = v + 1;
+        }
+        
+        this.offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] = offsets[v] + adjacencyList.get(subjects[v].getId()).size();
+        }
+        this.targets = new int[offsets[n]];
+        for (int v = 0; v < n; v++) {
+            int e = offsets[v];
+            for (String dest : adjacencyList.get(subjects[v].getId())) targets[e++] = indexOf(dest);
+        }
+        this.inDegree = new int[n];
+        for (int target : targets) inDegree[target]++;
+        
+        this.reverseOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) reverseOffsets[v + 1] = reverseOffsets[v] + inDegree[v];
+        this.sources = new int[targets.length];
+        if (reverseAdjacencyList != null) {
+            // Keep each prerequisite list in the order the graph holds it
+            for (int v = 0; v < n; v++) {
+                int e = reverseOffsets[v];
+                for (String source : reverseAdjacencyList.get(subjects[v].getId())) sources[e++] = indexOf(source);
+            }
+        } else {
+            int[] next = Arrays.copyOf(reverseOffsets, n);
+            for (int v = 0; v < n; v++) {
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) sources[next[targets[e]]++] = v;
+            }
+        }
+    }
+    
+    /**
+     * Same structure over other Subject objects, indexed like this graph
+     */
+    private CompactGraph(CompactGraph structure, Subject[] subjects) {
+        this.subjects = subjects;
+        this.slots = structure.slots;
+        this.offsets = structure.offsets;
+        this.targets = structure.targets;
+        this.inDegree = structure.inDegree;
+        this.reverseOffsets = structure.reverseOffsets;
+        this.sources = structure.sources;
+    }
+    
+    /**
+     * Interns the subjects of a graph and packs its adjacency list into CSR arrays.
+     */
+    public static CompactGraph of(Collection<Subject> subjects, Map<String, List<String>> adjacencyList) {
+        return of(subjects, adjacencyList, null);
+    }
+    
+    /**
+     * Same, taking the prerequisite lists from reverseAdjacencyList (if not null)
+     * so that they keep their order
+     */
+    static CompactGraph of(Collection<Subject> subjects, Map<String, List<String>> adjacencyList,
+                           Map<String, List<String>> reverseAdjacencyList) {
+        return new CompactGraph(subjects.toArray(new Subject[0]), adjacencyList, reverseAdjacencyList);
+    }
+    
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+    
+    /**
+     * Kahn's Algorithm over the CSR arrays.
+     * Returns subject ids in topological order, or an empty array if a cycle exists.
+     */
+    public int[] topologicalOrder() {
+        int n = subjects.length;
+        int[] remaining = inDegree.clone();
+        int[] queue = new int[n];
+        int head = 0, tail = 0;
+        
+        for (int v = 0; v < n; v++) {
+            if (remaining[v] == 0) queue[tail++] = v;
+        }
+        while (head < tail) {
+            int current = queue[head++];
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                if (--remaining[targets[e]] == 0) queue[tail++] = targets[e];
+            }
+        }
+        // The queue doubles as the result once every subject was emitted
+        return tail == n ? queue : new int[0];
+    }
+    
+    public boolean hasCycle() {
+        return topologicalOrder().length != subjects.length;
+    }
+    
+    /**
+     * Finds one cycle with an iterative colouring DFS.
+     * Returns its ids in edge order, or an empty array if the graph is acyclic.
+     */
+    public int[] findCycle() {
+        int n = subjects.length;
+        byte[] color = new byte[n]; // 0 = unvisited, 1 = on stack, 2 = done
+        int[] parent = new int[n];
+        int[] cursor = new int[n];
+        int[] stack = new int[n];
+        
+        for (int start = 0; start < n; start++) {
+            if (color[start] != 0) continue;
+            int top = 0;
+            stack[top++] = start;
+            color[start] = 1;
+            cursor[start] = offsets[start];
+            
+            while (top > 0) {
+                int v = stack[top - 1];
+                if (cursor[v] == offsets[v + 1]) {
+                    color[v] = 2;
+                    top--;
+                    continue;
+                }
+                int w = targets[cursor[v]++];
+                if (color[w] == 0) {
+                    parent[w] = v;
+                    color[w] = 1;
+                    cursor[w] = offsets[w];
+                    stack[top++] = w;
+                } else if (color[w] == 1) {
+                    // Back edge v -> w closes a loop through the stack
+                    int length = 1;
+                    for (int u = v; u != w; u = parent[u]) length++;
+                    int[] cycle = new int[length];
+                    for (int u = v, i = length - 1; i >= 0; u = parent[u], i--) cycle[i] = u;
+                    return cycle;
+                }
+            }
+        }
+        return new int[0];
+    }
+    
+    /**
+     * Dense id of a subject, or -1 if it is not part of this graph.
+     */
+    public int indexOf(String subjectId) {
+        if (subjectId == null) return -1;
+        int mask = slots.length - 1;
+        for (int i = spread(subjectId.hashCode()) & mask; slots[i] != 0; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (subjects[id].getId().equals(subjectId)) return id;
+        }
+        return -1;
+    }
+    
+    /**
+     * This structure over the given subjects, which must be listed by dense id
+     */
+    CompactGraph withSubjects(List<Subject> replacements) {
+        return new CompactGraph(this, replacements.toArray(new Subject[0]));
+    }
+    
+    /**
+     * The subject slots as a list in dense id order; set() swaps a subject
+     * for another of the same id in place
+     */
+    List<Subject> subjectList() {
+        return Arrays.asList(subjects);
+    }
+    
+    /**
+     * Ids of the dependents of a subject, read straight from the arrays
+     */
+    List<String> dependentIds(int id) {
+        return new IdList(targets, offsets[id], offsets[id + 1]);
+    }
+    
+    /**
+     * Ids of the direct prerequisites of a subject, read straight from the arrays
+     */
+    List<String> prerequisiteIds(int id) {
+        return new IdList(sources, reverseOffsets[id], reverseOffsets[id + 1]);
+    }
+    
+    private class IdList extends AbstractList<String> implements RandomAccess {
+        private final int[] edges;
+        private final int start;
+        private final int end;
+        
+        IdList(int[] edges, int start, int end) {
+            this.edges = edges;
+            this.start = start;
+            this.end = end;
+        }
+        
+        @Override
+        public String get(int index) {
+            Objects.checkIndex(index, end - start);
+            return subjects[edges[start + index]].getId();
+        }
+        
+        @Override
+        public int size() { return end - start; }
+    }
+    
+    // Getters
+    public int size() { return subjects.length; }
+    public int edgeCount() { return targets.length; }
+    public Subject getSubject(int id) { return subjects[id]; }
+    public int getInDegree(int id) { return inDegree[id]; }
+    public int getOutDegree(int id) { return offsets[id + 1] - offsets[id]; }
+    public int edgeStart(int id) { return offsets[id]; }
+    public int edgeEnd(int id) { return offsets[id + 1]; }
+    public int edgeTarget(int edge) { return targets[edge]; }
+    public int reverseEdgeStart(int id) { return reverseOffsets[id]; }
+    public int reverseEdgeEnd(int id) { return reverseOffsets[id + 1]; }
+    public int edgeSource(int edge) { return sources[edge]; }
+}
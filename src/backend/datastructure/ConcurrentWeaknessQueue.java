@@ -0,0 +1,138 @@
+package backend.datastructure;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Weakness queue for many concurrent producers and one consumer.
+ * Inserts are lock-free: each producer thread appends to one of several
+ * striped ConcurrentLinkedQueue buffers. Every other operation takes the lock,
+ * merges all buffers into a WeaknessHeap in one batch and then runs on it, so
+ * extractMax sees every insert that completed before it started.
+ * Each insert is stamped from one global counter and a batch is applied in
+ * stamp order, so when two inserts of a topic do not overlap, the later one wins
+ * whichever stripes they landed in.
+ */
+public class ConcurrentWeaknessQueue implements WeaknessQueue {
+    private ConcurrentLinkedQueue<Stamped>[] stripes;
+    private int mask;
+    private AtomicLong sequence;
+    private WeaknessHeap heap;
+    
+    private static class Stamped {
+        private final long sequence;
+        private final WeaknessHeap.HeapNode node;
+        
+        Stamped(long sequence, WeaknessHeap.HeapNode node) {
+            this.sequence = sequence;
+            this.node = node;
+        }
+    }
+    
+    public ConcurrentWeaknessQueue() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConcurrentWeaknessQueue(int stripeCount) {
+        int count = Integer.highestOneBit(Math.max(1, stripeCount - 1) * 2); // round up to a power of two
+        stripes = new ConcurrentLinkedQueue[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ConcurrentLinkedQueue<>();
+        }
+        mask = count - 1;
+        sequence = new AtomicLong();
+        heap = new WeaknessHeap();
+    }
+    
+    /**
+     * Lock-free apart from taking a stamp.
+     */
+    @Override
+    public void insert(WeaknessHeap.HeapNode node) {
+        long thread = Thread.currentThread().getId();
+        stripes[(int) (thread ^ (thread >>> 16)) & mask].offer(new Stamped(sequence.getAndIncrement(), node));
+    }
+    
+    @Override
+    public synchronized WeaknessHeap.HeapNode extractMax() {
+        drain();
+        return heap.extractMax();
+    }
+    
+    @Override
+    public synchronized WeaknessHeap.HeapNode peekMax() {
+        drain();
+        return heap.peekMax();
+    }
+    
+    @Override
+    public synchronized WeaknessHeap.HeapNode get(String topicId) {
+        drain();
+        return heap.get(topicId);
+    }
+    
+    @Override
+    public synchronized boolean update(String topicId, double weaknessScore) {
+        drain();
+        return heap.update(topicId, weaknessScore);
+    }
+    
+    @Override
+    public synchronized WeaknessHeap.HeapNode remove(String topicId) {
+        drain();
+        return heap.remove(topicId);
+    }
+    
+    @Override
+    public synchronized boolean isEmpty() {
+        drain();
+        return heap.isEmpty();
+    }
+    
+    @Override
+    public synchronized int size() {
+        drain();
+        return heap.size();
+    }
+    
+    @Override
+    public synchronized long getVersion() {
+        drain();
+        return heap.getVersion();
+    }
+    
+    @Override
+    public synchronized List<WeaknessHeap.HeapNode> getSortedNodes() {
+        drain();
+        return heap.getSortedNodes();
+    }
+    
+    @Override
+    public synchronized List<WeaknessHeap.HeapNode> topK(int k) {
+        drain();
+        return heap.topK(k);
+    }
+    
+    /**
+     * Merges everything the producers buffered into the heap, oldest stamp first.
+     * An insert stamped earlier that only shows up in a later drain overlapped
+     * this one, so applying it afterwards is still a valid order.
+     */
+    private void drain() {
+        List<Stamped> batch = new ArrayList<>();
+        for (ConcurrentLinkedQueue<Stamped> stripe : stripes) {
+            Stamped entry;
+            while ((entry = stripe.poll()) != null) {
+                batch.add(entry);
+            }
+        }
+        batch.sort(Comparator.comparingLong(entry -> entry.sequence));
+        for (Stamped entry : batch) {
+            heap.insert(entry.node);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package backend.datastructure;
+
+import backend.model.Subject;
+import java.util.*;
+
+/**
+ * Weighted longest-path analysis over the prerequisite DAG.
+ * Every subject takes getEffort() weeks and can start once all of its
+ * prerequisites are finished. Earliest finish times come from one forward pass
+ * over the topological order; latest finish and slack from one backward pass.
+ * All values are NaN while the graph contains a cycle.
+ * Queries lock the graph, so they are safe from any thread.
+ */
+public class CriticalPath {
+    private static final double EPSILON = 1e-9;
+    
+    private SubjectGraph graph;
+    private Map<String, Double> earliestFinish;
+    private Map<String, Double> latestFinish;
+    private TreeMap<Double, Integer> finishTimes; // multiset of earliest finishes, for the length
+    private long computedVersion;
+    private boolean latestValid;
+    
+    public CriticalPath(SubjectGraph graph) {
+        this.graph = graph;
+        this.earliestFinish = new HashMap<>();
+        this.latestFinish = new HashMap<>();
+        this.finishTimes = new TreeMap<>();
+        this.computedVersion = -1;
+    }
+    
+    /**
+     * Minimum number of weeks needed to finish every subject.
+     */
+    public double getLength() {
+        synchronized (graph) {
+            if (!ensureComputed()) return Double.NaN;
+            return finishTimes.isEmpty() ? 0.0 : finishTimes.lastKey();
+        }
+    }
+    
+    /**
+     * Minimum weeks to reach (and finish) the given subject.
+     */
+    public double getEarliestFinish(String subjectId) {
+        synchronized (graph) {
+            if (!ensureComputed() || !earliestFinish.containsKey(subjectId)) return Double.NaN;
+            return earliestFinish.get(subjectId);
+        }
+    }
+    
+    public double getEarliestStart(String subjectId) {
+        synchronized (graph) {
+            return getEarliestFinish(subjectId) - effortOf(subjectId);
+        }
+    }
+    
+    /**
+     * Latest finish that does not delay the whole plan.
+     */
+    public double getLatestFinish(String subjectId) {
+        synchronized (graph) {
+            if (!ensureComputed() || !earliestFinish.containsKey(subjectId)) return Double.NaN;
+            if (!latestValid) computeLatest();
+            return latestFinish.get(subjectId);
+        }
+    }
+    
+    /**
+     * Weeks a subject can slip without delaying the plan; 0 on the critical path.
+     */
+    public double getSlack(String subjectId) {
+        synchronized (graph) {
+            return getLatestFinish(subjectId) - getEarliestFinish(subjectId);
+        }
+    }
+    
+    /**
+     * One longest chain of subjects, from first prerequisite to last subject.
+     */
+    public List<Subject> getPath() {
+        synchronized (graph) {
+            List<Subject> path = new ArrayList<>();
+            if (!ensureComputed() || finishTimes.isEmpty()) return path;
+            
+            String current = null;
+            for (Map.Entry<String, Double> entry : earliestFinish.entrySet()) {
+                if (current == null || entry.getValue() > earliestFinish.get(current)) current = entry.getKey();
+            }
+            while (current != null) {
+                path.add(graph.getSubjects().get(current));
+                // Follow the prerequisite that finishes exactly when this subject starts
+                double start = earliestFinish.get(current) - effortOf(current);
+                String next = null;
+                for (String prereq : graph.prerequisitesOf(current)) {
+                    if (Math.abs(earliestFinish.get(prereq) - start) < EPSILON) {
+                        next = prereq;
+                        break;
+                    }
+                }
+                current = next;
+            }
+            Collections.reverse(path);
+            return path;
+        }
+    }
+    
+    /**
+     * Incremental update after a subject's effort changed.
+     * Earliest finishes are re-propagated in topological order, stopping
+     * wherever a value does not change; latest finishes are redone on demand.
+     */
+    public void subjectChanged(Subject subject) {
+        synchronized (graph) {
+            if (computedVersion != graph.getVersion() || graph.hasCycle()) return;
+            
+            PriorityQueue<String> queue = new PriorityQueue<>(Comparator.comparingInt(graph::positionOf));
+            Set<String> queued = new HashSet<>();
+            queue.add(subject.getId());
+            queued.add(subject.getId());
+            
+            while (!queue.isEmpty()) {
+                String current = queue.poll();
+                queued.remove(current);
+                
+                double finish = startOf(current) + effortOf(current);
+                double old = earliestFinish.get(current);
+                if (Math.abs(finish - old) < EPSILON && !current.equals(subject.getId())) continue;
+                setEarliestFinish(current, finish);
+                
+                for (String dependent : graph.getAdjacencyList().get(current)) {
+                    if (queued.add(dependent)) queue.add(dependent);
+                }
+            }
+            latestValid = false;
+        }
+    }
+    
+    private boolean ensureComputed() {
+        if (graph.hasCycle()) return false;
+        if (computedVersion == graph.getVersion()) return true;
+        
+        earliestFinish.clear();
+        finishTimes.clear();
+        for (Subject s : graph.getTopologicalOrder()) {
+            setEarliestFinish(s.getId(), startOf(s.getId()) + s.getEffort());
+        }
+        computedVersion = graph.getVersion();
+        latestValid = false;
+        return true;
+    }
+    
+    private void computeLatest() {
+        double length = getLength();
+        latestFinish.clear();
+        List<Subject> order = graph.getTopologicalOrder();
+        for (int i = order.size() - 1; i >= 0; i--) {
+            String id = order.get(i).getId();
+            double latest = length;
+            for (String dependent : graph.getAdjacencyList().get(id)) {
+                latest = Math.min(latest, latestFinish.get(dependent) - effortOf(dependent));
+            }
+            latestFinish.put(id, latest);
+        }
+        latestValid = true;
+    }
+    
+    private double startOf(String subjectId) {
+        double start = 0.0;
+        for (String prereq : graph.prerequisitesOf(subjectId)) {
+            start = Math.max(start, earliestFinish.get(prereq));
+        }
+        return start;
+    }
+    
+    private void setEarliestFinish(String subjectId, double finish) {
+        Double old = earliestFinish.put(subjectId, finish);
+        if (old != null) {
+            finishTimes.computeIfPresent(old, (k, count) -> count == 1 ? null : count - 1);
+        }
+        finishTimes.merge(finish, 1, Integer::sum);
+    }
+    
+    private double effortOf(String subjectId) {
+        return graph.getSubjects().get(subjectId).getEffort();
+    }
+}
@@ -0,0 +1,106 @@
+package backend.datastructure;
+
+import backend.model.Prerequisite;
+import java.util.*;
+
+/**
+ * Cycle checks for candidate prerequisite edges using bounded reachability.
+ * Reads the graph without modifying it; scratch space is reused between calls.
+ */
+public class CycleChecker {
+    private SubjectGraph graph;
+    private Map<String, Integer> visited; // subject id -> stamp of the last search that reached it
+    private Deque<String> stack;
+    private int stamp;
+    
+    public CycleChecker(SubjectGraph graph) {
+        this.graph = graph;
+        this.visited = new HashMap<>();
+        this.stack = new ArrayDeque<>();
+    }
+    
+    /**
+     * Returns true if adding prerequisiteId -> subjectId would close a loop,
+     * i.e. the prerequisite is already reachable from the subject.
+     */
+    public boolean createsCycle(String subjectId, String prerequisiteId) {
+        if (subjectId.equals(prerequisiteId)) return true;
+        if (graph.hasCycle()) return true;
+        if (!graph.getSubjects().containsKey(subjectId) || !graph.getSubjects().containsKey(prerequisiteId)) return false;
+        
+        // Closure already maintained by transitive queries: O(1) answer
+        ReachabilityIndex closure = graph.builtReachability();
+        if (closure != null) return closure.reaches(subjectId, prerequisiteId);
+        
+        int to = graph.positionOf(subjectId);
+        int from = graph.positionOf(prerequisiteId);
+        // Already in topological order: nothing after the subject can lead back
+        if (from < to) return false;
+        
+        search(subjectId, from);
+        return reached(prerequisiteId);
+    }
+    
+    /**
+     * Batch mode: checks every candidate against the current graph.
+     * Candidates sharing a subject are answered by a single bounded search.
+     * Each result is true if that edge alone can be added safely.
+     */
+    public boolean[] validate(List<Prerequisite> candidates) {
+        boolean[] safe = new boolean[candidates.size()];
+        if (graph.hasCycle()) return safe;
+        
+        // Group the candidates that need a search by their subject
+        Map<String, List<Integer>> pending = new HashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            Prerequisite edge = candidates.get(i);
+            String subjectId = edge.getSubjectId();
+            String prerequisiteId = edge.getPrerequisiteId();
+            
+            if (subjectId.equals(prerequisiteId)) continue;
+            if (!graph.getSubjects().containsKey(subjectId) || !graph.getSubjects().containsKey(prerequisiteId)) {
+                safe[i] = true;
+            } else if (graph.positionOf(prerequisiteId) < graph.positionOf(subjectId)) {
+                safe[i] = true;
+            } else {
+                pending.computeIfAbsent(subjectId, k -> new ArrayList<>()).add(i);
+            }
+        }
+        
+        for (Map.Entry<String, List<Integer>> group : pending.entrySet()) {
+            int bound = 0;
+            for (int i : group.getValue()) {
+                bound = Math.max(bound, graph.positionOf(candidates.get(i).getPrerequisiteId()));
+            }
+            search(group.getKey(), bound);
+            for (int i : group.getValue()) {
+                safe[i] = !reached(candidates.get(i).getPrerequisiteId());
+            }
+        }
+        return safe;
+    }
+    
+    /**
+     * DFS from start over dependents, skipping subjects positioned after bound.
+     */
+    private void search(String start, int bound) {
+        stamp++;
+        visited.put(start, stamp);
+        stack.push(start);
+        
+        while (!stack.isEmpty()) {
+            String current = stack.pop();
+            for (String next : graph.getAdjacencyList().get(current)) {
+                if (graph.positionOf(next) <= bound && !reached(next)) {
+                    visited.put(next, stamp);
+                    stack.push(next);
+                }
+            }
+        }
+    }
+    
+    private boolean reached(String id) {
+        Integer seen = visited.get(id);
+        return seen != null && seen == stamp;
+    }
+}
@@ -0,0 +1,21 @@
+package backend.datastructure;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thrown when a batch of prerequisites would make the graph cyclic.
+ * Carries the offending loop in prerequisite order (first id repeated at the end).
+ */
+public class CyclicDependencyException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+    
+    private List<String> cycle;
+    
+    public CyclicDependencyException(List<String> cycle) {
+        super("Prerequisites form a cycle: " + String.join(" -> ", cycle));
+        this.cycle = new ArrayList<>(cycle);
+    }
+    
+    public List<String> getCycle() { return cycle; }
+}
@@ -0,0 +1,106 @@
+package backend.datastructure;
+
+import backend.model.Subject;
+import java.util.*;
+
+/**
+ * Immutable, versioned view of a SubjectGraph.
+ * Safe to read from any thread while the graph keeps changing. Both maps are
+ * persistent, so the next snapshot shares everything that did not change and
+ * costs about log32(V) per changed subject or dependent list, not O(V).
+ * Subjects are detached copies taken when they were added or last changed;
+ * changing one of them does not touch the graph.
+ */
+public final class GraphSnapshot {
+    private final long version;
+    private final long stateVersion;
+    private final PersistentMap<String, Subject> subjects;
+    private final PersistentMap<String, List<String>> adjacencyList;
+    private volatile List<Subject> topologicalOrder; // computed on first request
+    
+    private GraphSnapshot(long version, long stateVersion, PersistentMap<String, Subject> subjects,
+                          PersistentMap<String, List<String>> adjacencyList) {
+        this.version = version;
+        this.stateVersion = stateVersion;
+        this.subjects = subjects;
+        this.adjacencyList = adjacencyList;
+    }
+    
+    static GraphSnapshot empty() {
+        return new GraphSnapshot(-1, -1, PersistentMap.empty(), PersistentMap.empty());
+    }
+    
+    /**
+     * Same dependent lists with no subjects, the starting point of a fork
+     */
+    GraphSnapshot withoutSubjects() {
+        return new GraphSnapshot(-1, -1, PersistentMap.empty(), adjacencyList);
+    }
+    
+    /**
+     * Next snapshot: copies the subjects in changedSubjects and the dependent
+     * lists of changedSources, sharing the rest with this one.
+     */
+    GraphSnapshot next(long version, long stateVersion, Map<String, Subject> currentSubjects,
+                       Set<String> changedSubjects, Map<String, List<String>> currentAdjacency,
+                       Set<String> changedSources) {
+        PersistentMap<String, Subject> nextSubjects = subjects;
+        for (String id : changedSubjects) {
+            nextSubjects = nextSubjects.with(id, currentSubjects.get(id).copy());
+        }
+        PersistentMap<String, List<String>> nextAdjacency = adjacencyList;
+        for (String source : changedSources) {
+            nextAdjacency = nextAdjacency.with(source, List.copyOf(currentAdjacency.get(source)));
+        }
+        return new GraphSnapshot(version, stateVersion, nextSubjects, nextAdjacency);
+    }
+    
+    public Subject getSubject(String id) {
+        return subjects.get(id);
+    }
+    
+    public List<String> getDependents(String id) {
+        return adjacencyList.getOrDefault(id, Collections.emptyList());
+    }
+    
+    // Getters
+    public long getVersion() { return version; }
+    long getStateVersion() { return stateVersion; }
+    public Map<String, Subject> getSubjects() { return subjects; }
+    public Map<String, List<String>> getAdjacencyList() { return adjacencyList; }
+    
+    /**
+     * A topological order of the snapshot (empty if it had a cycle). Worked
+     * out with one Kahn pass the first time it is asked for, so it need not
+     * match the live graph's order where several orders are valid.
+     */
+    public List<Subject> getTopologicalOrder() {
+        List<Subject> order = topologicalOrder;
+        if (order == null) {
+            order = kahn();
+            topologicalOrder = order;
+        }
+        return order;
+    }
+    
+    private List<Subject> kahn() {
+        Map<String, Integer> inDegree = new HashMap<>(subjects.size() * 2);
+        for (String id : subjects.keySet()) inDegree.put(id, 0);
+        for (List<String> dependents : adjacencyList.values()) {
+            for (String dependent : dependents) inDegree.merge(dependent, 1, Integer::sum);
+        }
+        Deque<String> ready = new ArrayDeque<>();
+        for (Map.Entry<String, Integer> entry : inDegree.entrySet()) {
+            if (entry.getValue() == 0) ready.add(entry.getKey());
+        }
+        List<Subject> order = new ArrayList<>(subjects.size());
+        while (!ready.isEmpty()) {
+            String id = ready.poll();
+            order.add(subjects.get(id));
+            for (String dependent : getDependents(id)) {
+                if (inDegree.merge(dependent, -1, Integer::sum) == 0) ready.add(dependent);
+            }
+        }
+        return order.size() == subjects.size() ? Collections.unmodifiableList(order) : Collections.emptyList();
+    }
+}
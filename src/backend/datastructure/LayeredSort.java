@@ -0,0 +1,119 @@
+package backend.datastructure;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Level-synchronous Kahn's Algorithm over a CompactGraph.
+ * Level k holds every subject whose prerequisites all sit in earlier levels
+ * (one level per semester). Large frontiers are expanded on a ForkJoinPool.
+ */
+public class LayeredSort {
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+    
+    private ForkJoinPool pool;
+    private int parallelThreshold;
+    
+    public LayeredSort() {
+        this(ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+    
+    /**
+     * Frontiers smaller than parallelThreshold are expanded on the calling thread.
+     */
+    public LayeredSort(ForkJoinPool pool, int parallelThreshold) {
+        this.pool = pool;
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+    }
+    
+    /**
+     * Returns the subject ids of each level, sorted within a level.
+     * Returns an empty list if the graph has a cycle.
+     */
+    public List<int[]> layers(CompactGraph graph) {
+        int n = graph.size();
+        AtomicIntegerArray remaining = new AtomicIntegerArray(n);
+        int[] frontier = new int[n];
+        int size = 0;
+        for (int v = 0; v < n; v++) {
+            remaining.set(v, graph.getInDegree(v));
+            if (graph.getInDegree(v) == 0) frontier[size++] = v;
+        }
+        frontier = Arrays.copyOf(frontier, size);
+        
+        List<int[]> levels = new ArrayList<>();
+        int placed = 0;
+        while (frontier.length > 0) {
+            levels.add(frontier);
+            placed += frontier.length;
+            
+            if (frontier.length < parallelThreshold) {
+                frontier = new Expand(graph, remaining, frontier, 0, frontier.length, frontier.length).compute();
+            } else {
+                frontier = pool.invoke(new Expand(graph, remaining, frontier, 0, frontier.length, grain(frontier.length)));
+            }
+            Arrays.sort(frontier);
+        }
+        
+        // Subjects left over are stuck behind a cycle
+        return placed == n ? levels : new ArrayList<>();
+    }
+    
+    private int grain(int frontierSize) {
+        int chunks = pool.getParallelism() * 4;
+        return Math.max(1, Math.max(parallelThreshold / 4, frontierSize / chunks));
+    }
+    
+    /**
+     * Releases the dependents of frontier[lo, hi) and returns those that became ready.
+     */
+    private static class Expand extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+        
+        private CompactGraph graph;
+        private AtomicIntegerArray remaining;
+        private int[] frontier;
+        private int lo, hi, grain;
+        
+        Expand(CompactGraph graph, AtomicIntegerArray remaining, int[] frontier, int lo, int hi, int grain) {
+            this.graph = graph;
+            this.remaining = remaining;
+            this.frontier = frontier;
+            this.lo = lo;
+            this.hi = hi;
+            this.grain = grain;
+        }
+        
+        @Override
+        protected int[] compute() {
+            if (hi - lo > grain) {
+                int mid = (lo + hi) >>> 1;
+                Expand left = new Expand(graph, remaining, frontier, lo, mid, grain);
+                Expand right = new Expand(graph, remaining, frontier, mid, hi, grain);
+                left.fork();
+                int[] r = right.compute();
+                int[] l = left.join();
+                int[] merged = Arrays.copyOf(l, l.length + r.length);
+                System.arraycopy(r, 0, merged, l.length, r.length);
+                return merged;
+            }
+            
+            int[] ready = new int[16];
+            int count = 0;
+            for (int i = lo; i < hi; i++) {
+                int current = frontier[i];
+                for (int e = graph.edgeStart(current); e < graph.edgeEnd(current); e++) {
+                    int next = graph.edgeTarget(e);
+                    // Exactly one thread sees the count reach zero
+                    if (remaining.decrementAndGet(next) == 0) {
+                        if (count == ready.length) ready = Arrays.copyOf(ready, count * 2);
+                        ready[count++] = next;
+                    }
+                }
+            }
+            return Arrays.copyOf(ready, count);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package backend.datastructure;
+
+import java.util.*;
+
+/**
+ * Immutable hash map with structural sharing (a hash array-mapped trie).
+ * with() copies only the path from the root to the changed entry, about
+ * log32(n) small arrays, and shares everything else with the old map.
+ * Keys whose 32-bit hashes are equal end up together in one collision node.
+ */
+final class PersistentMap<K, V> extends AbstractMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+    
+    private final Object root; // Node, Collision or null
+    private final int size;
+    
+    /**
+     * Slots hold entries or child nodes; bit i of the bitmap says whether
+     * the hash chunk i is present, and its slot is the count of lower bits.
+     */
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+        
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+    
+    private static final class Collision {
+        final int hash;
+        final Object[] entries;
+        
+        Collision(int hash, Object[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+    }
+    
+    private PersistentMap(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+    
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+    
+    @Override
+    public int size() { return size; }
+    
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) != null;
+    }
+    
+    @Override
+    public V get(Object key) {
+        Map.Entry<K, V> entry = find(key);
+        return entry == null ? null : entry.getValue();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map.Entry<K, V> find(Object key) {
+        int hash = hash(key);
+        Object node = root;
+        for (int shift = 0; node != null; shift += BITS) {
+            if (node instanceof Collision) {
+                for (Object entry : ((Collision) node).entries) {
+                    if (Objects.equals(((Map.Entry<K, V>) entry).getKey(), key)) return (Map.Entry<K, V>) entry;
+                }
+                return null;
+            }
+            Node branch = (Node) node;
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((branch.bitmap & bit) == 0) return null;
+            Object slot = branch.slots[Integer.bitCount(branch.bitmap & (bit - 1))];
+            if (slot instanceof Map.Entry) {
+                Map.Entry<K, V> entry = (Map.Entry<K, V>) slot;
+                return Objects.equals(entry.getKey(), key) ? entry : null;
+            }
+            node = slot;
+        }
+        return null;
+    }
+    
+    /**
+     * A map with the key mapped to value; this one is left as it is
+     */
+    PersistentMap<K, V> with(K key, V value) {
+        Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<>(key, value);
+        boolean[] added = new boolean[1];
+        Object next = put(root, 0, hash(key), entry, added);
+        return next == root ? this : new PersistentMap<>(next, added[0] ? size + 1 : size);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Object put(Object node, int shift, int hash, Map.Entry<?, ?> entry, boolean[] added) {
+        if (node == null) {
+            added[0] = true;
+            return new Node(1 << ((hash >>> shift) & MASK), new Object[] { entry });
+        }
+        if (node instanceof Collision) {
+            Collision collision = (Collision) node;
+            Object[] entries = collision.entries;
+            for (int i = 0; i < entries.length; i++) {
+                Map.Entry<?, ?> old = (Map.Entry<?, ?>) entries[i];
+                if (Objects.equals(old.getKey(), entry.getKey())) {
+                    if (old.getValue() == entry.getValue()) return node;
+                    Object[] copy = entries.clone();
+                    copy[i] = entry;
+                    return new Collision(collision.hash, copy);
+                }
+            }
+            added[0] = true;
+            Object[] copy = Arrays.copyOf(entries, entries.length + 1);
+            copy[entries.length] = entry;
+            return new Collision(collision.hash, copy);
+        }
+        
+        Node branch = (Node) node;
+        int bit = 1 << ((hash >>> shift) & MASK);
+        int index = Integer.bitCount(branch.bitmap & (bit - 1));
+        if ((branch.bitmap & bit) == 0) {
+            added[0] = true;
+            Object[] slots = new Object[branch.slots.length + 1];
+            System.arraycopy(branch.slots, 0, slots, 0, index);
+            slots[index] = entry;
+            System.arraycopy(branch.slots, index, slots, index + 1, branch.slots.length - index);
+            return new Node(branch.bitmap | bit, slots);
+        }
+        
+        Object slot = branch.slots[index];
+        Object replacement;
+        if (slot instanceof Map.Entry) {
+            Map.Entry<?, ?> old = (Map.Entry<?, ?>) slot;
+            if (Objects.equals(old.getKey(), entry.getKey())) {
+                if (old.getValue() == entry.getValue()) return node;
+                replacement = entry;
+            } else {
+                added[0] = true;
+                replacement = split(old, hash(old.getKey()), entry, hash, shift + BITS);
+            }
+        } else {
+            replacement = put(slot, shift + BITS, hash, entry, added);
+            if (replacement == slot) return node;
+        }
+        Object[] slots = branch.slots.clone();
+        slots[index] = replacement;
+        return new Node(branch.bitmap, slots);
+    }
+    
+    /**
+     * Smallest subtree holding two entries that shared a slot one level up
+     */
+    private static Object split(Map.Entry<?, ?> a, int hashA, Map.Entry<?, ?> b, int hashB, int shift) {
+        if (shift >= 32) return new Collision(hashA, new Object[] { a, b }); // every hash bit is used up
+        int bitA = 1 << ((hashA >>> shift) & MASK);
+        int bitB = 1 << ((hashB >>> shift) & MASK);
+        if (bitA == bitB) return new Node(bitA, new Object[] { split(a, hashA, b, hashB, shift + BITS) });
+        Object[] slots = Integer.compareUnsigned(bitA, bitB) < 0 ? new Object[] { a, b } : new Object[] { b, a };
+        return new Node(bitA | bitB, slots);
+    }
+    
+    private static int hash(Object key) {
+        int h = Objects.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+    
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public int size() { return size; }
+            
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry)) return false;
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                Map.Entry<K, V> found = find(entry.getKey());
+                return found != null && Objects.equals(found.getValue(), entry.getValue());
+            }
+            
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+        };
+    }
+    
+    /**
+     * Depth-first walk; each stack level is one slot array and a cursor into it
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private final Object[][] arrays = new Object[9][];
+        private final int[] cursors = new int[9];
+        private int depth = -1;
+        private Map.Entry<K, V> next;
+        
+        EntryIterator() {
+            if (root != null) push(root);
+            advance();
+        }
+        
+        private void push(Object node) {
+            arrays[++depth] = node instanceof Node ? ((Node) node).slots : ((Collision) node).entries;
+            cursors[depth] = 0;
+        }
+        
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                if (cursors[depth] == arrays[depth].length) {
+                    arrays[depth--] = null;
+                    continue;
+                }
+                Object slot = arrays[depth][cursors[depth]++];
+                if (slot instanceof Map.Entry) {
+                    next = (Map.Entry<K, V>) slot;
+                    return;
+                }
+                push(slot);
+            }
+        }
+        
+        @Override
+        public boolean hasNext() { return next != null; }
+        
+        @Override
+        public Map.Entry<K, V> next() {
+            if (next == null) throw new NoSuchElementException();
+            Map.Entry<K, V> result = next;
+            advance();
+            return result;
+        }
+    }
+}
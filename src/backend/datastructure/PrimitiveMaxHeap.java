@@ -0,0 +1,148 @@
+package backend.datastructure;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary max-heap over primitive arrays.
+ * Each entry is an int handle with a double key. slotOf[handle] points back
+ * into the heap, so update/remove by handle are O(log n). Sifting only touches
+ * the contiguous key/handle arrays and never allocates.
+ */
+public class PrimitiveMaxHeap {
+    private double[] keys;   // key of the entry in each heap slot
+    private int[] handles;   // handle of the entry in each heap slot
+    private int[] slotOf;    // heap slot of each handle, -1 if absent
+    private int size;
+    
+    public PrimitiveMaxHeap() {
+        this(16);
+    }
+    
+    public PrimitiveMaxHeap(int capacity) {
+        capacity = Math.max(1, capacity);
+        keys = new double[capacity];
+        handles = new int[capacity];
+        slotOf = new int[capacity];
+        Arrays.fill(slotOf, -1);
+    }
+    
+    /**
+     * Adds a handle that is not in the heap yet.
+     */
+    public void push(int handle, double key) {
+        if (handle >= slotOf.length) {
+            int old = slotOf.length;
+            slotOf = Arrays.copyOf(slotOf, Math.max(handle + 1, old * 2));
+            Arrays.fill(slotOf, old, slotOf.length, -1);
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            handles = Arrays.copyOf(handles, size * 2);
+        }
+        siftUp(size++, handle, key);
+    }
+    
+    /**
+     * Handle with the largest key, or -1 if empty.
+     */
+    public int peek() {
+        return size == 0 ? -1 : handles[0];
+    }
+    
+    public double peekKey() {
+        return keys[0];
+    }
+    
+    /**
+     * Removes and returns the handle with the largest key, or -1 if empty.
+     */
+    public int pop() {
+        if (size == 0) return -1;
+        int top = handles[0];
+        removeSlot(0);
+        return top;
+    }
+    
+    public void update(int handle, double key) {
+        int slot = slotOf[handle];
+        if (key > keys[slot]) {
+            siftUp(slot, handle, key);
+        } else {
+            siftDown(slot, handle, key);
+        }
+    }
+    
+    public void remove(int handle) {
+        removeSlot(slotOf[handle]);
+    }
+    
+    public boolean contains(int handle) {
+        return handle >= 0 && handle < slotOf.length && slotOf[handle] >= 0;
+    }
+    
+    public double keyOf(int handle) {
+        return keys[slotOf[handle]];
+    }
+    
+    public void clear() {
+        for (int i = 0; i < size; i++) slotOf[handles[i]] = -1;
+        size = 0;
+    }
+    
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    
+    // Read-only access to the implicit tree (children of slot i are 2i+1, 2i+2)
+    public int handleAt(int slot) { return handles[slot]; }
+    public double keyAt(int slot) { return keys[slot]; }
+    
+    private void removeSlot(int slot) {
+        int removed = handles[slot];
+        slotOf[removed] = -1;
+        size--;
+        if (slot == size) return;
+        
+        // Refill the hole with the last entry
+        int handle = handles[size];
+        double key = keys[size];
+        if (slot > 0 && key > keys[(slot - 1) >>> 1]) {
+            siftUp(slot, handle, key);
+        } else {
+            siftDown(slot, handle, key);
+        }
+    }
+    
+    /**
+     * Moves the hole at slot up until key fits, then drops the entry in.
+     */
+    private void siftUp(int slot, int handle, double key) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (key <= keys[parent]) break;
+            keys[slot] = keys[parent];
+            handles[slot] = handles[parent];
+            slotOf[handles[slot]] = slot;
+            slot = parent;
+        }
+        keys[slot] = key;
+        handles[slot] = handle;
+        slotOf[handle] = slot;
+    }
+    
+    private void siftDown(int slot, int handle, double key) {
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && keys[right] > keys[child]) child = right;
+            if (key >= keys[child]) break;
+            keys[slot] = keys[child];
+            handles[slot] = handles[child];
+            slotOf[handles[slot]] = slot;
+            slot = child;
+        }
+        keys[slot] = key;
+        handles[slot] = handle;
+        slotOf[handle] = slot;
+    }
+}
@@ -0,0 +1,120 @@
+package backend.datastructure;
+
+import backend.model.Subject;
+import java.util.*;
+
+/**
+ * Transitive closure of the prerequisite graph, one BitSet per subject.
+ * ancestors(v) holds every subject that must be studied before v,
+ * descendants(v) every subject that completing v (eventually) unlocks.
+ * Updated in place on edge insert.
+ */
+public class ReachabilityIndex {
+    private Map<String, Integer> ids;
+    private List<String> subjectIds;
+    private List<BitSet> ancestors;
+    private List<BitSet> descendants;
+    
+    public ReachabilityIndex() {
+        ids = new HashMap<>();
+        subjectIds = new ArrayList<>();
+        ancestors = new ArrayList<>();
+        descendants = new ArrayList<>();
+    }
+    
+    /**
+     * Builds the closure of an acyclic graph with one pass each way over its
+     * topological order; cyclic graphs fall back to inserting edge by edge.
+     */
+    public static ReachabilityIndex of(SubjectGraph graph) {
+        ReachabilityIndex index = new ReachabilityIndex();
+        if (graph.hasCycle()) {
+            for (String id : graph.getSubjects().keySet()) index.addSubject(id);
+            for (Map.Entry<String, List<String>> entry : graph.getAdjacencyList().entrySet()) {
+                for (String dependent : entry.getValue()) index.addEdge(entry.getKey(), dependent);
+            }
+            return index;
+        }
+        
+        List<String> order = new ArrayList<>();
+        for (Subject s : graph.getTopologicalOrder()) {
+            order.add(s.getId());
+            index.addSubject(s.getId());
+        }
+        for (String id : order) {
+            BitSet set = index.ancestors.get(index.ids.get(id));
+            for (String prereq : graph.prerequisitesOf(id)) {
+                int p = index.ids.get(prereq);
+                set.or(index.ancestors.get(p));
+                set.set(p);
+            }
+        }
+        for (int i = order.size() - 1; i >= 0; i--) {
+            BitSet set = index.descendants.get(index.ids.get(order.get(i)));
+            for (String dependent : graph.getAdjacencyList().get(order.get(i))) {
+                int d = index.ids.get(dependent);
+                set.or(index.descendants.get(d));
+                set.set(d);
+            }
+        }
+        return index;
+    }
+    
+    public void addSubject(String id) {
+        if (ids.containsKey(id)) return;
+        ids.put(id, subjectIds.size());
+        subjectIds.add(id);
+        ancestors.add(new BitSet());
+        descendants.add(new BitSet());
+    }
+    
+    /**
+     * Records prerequisiteId -> subjectId: everything at or before the
+     * prerequisite now reaches everything at or after the subject.
+     */
+    public void addEdge(String prerequisiteId, String subjectId) {
+        int from = ids.get(prerequisiteId);
+        int to = ids.get(subjectId);
+        if (ancestors.get(to).get(from)) return; // Already implied
+        
+        BitSet before = (BitSet) ancestors.get(from).clone();
+        before.set(from);
+        BitSet after = (BitSet) descendants.get(to).clone();
+        after.set(to);
+        
+        for (int v = after.nextSetBit(0); v >= 0; v = after.nextSetBit(v + 1)) {
+            ancestors.get(v).or(before);
+        }
+        for (int v = before.nextSetBit(0); v >= 0; v = before.nextSetBit(v + 1)) {
+            descendants.get(v).or(after);
+        }
+    }
+    
+    /**
+     * True if 'to' can only be studied after 'from' (a path from -> to exists).
+     */
+    public boolean reaches(String from, String to) {
+        Integer a = ids.get(from);
+        Integer b = ids.get(to);
+        return a != null && b != null && descendants.get(a).get(b);
+    }
+    
+    public List<String> getAncestors(String id) {
+        return toIds(ancestors, id);
+    }
+    
+    public List<String> getDescendants(String id) {
+        return toIds(descendants, id);
+    }
+    
+    private List<String> toIds(List<BitSet> sets, String id) {
+        List<String> result = new ArrayList<>();
+        Integer index = ids.get(id);
+        if (index == null) return result;
+        BitSet set = sets.get(index);
+        for (int v = set.nextSetBit(0); v >= 0; v = set.nextSetBit(v + 1)) {
+            result.add(subjectIds.get(v));
+        }
+        return result;
+    }
+}
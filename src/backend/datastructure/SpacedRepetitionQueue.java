@@ -0,0 +1,224 @@
+package backend.datastructure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Spaced-repetition mode for the weakness queue.
+ * A topic's urgency is base * 2^(hours since last studied / doublingHours), so it
+ * grows while the topic is left alone. review() takes the most urgent topic and
+ * re-queues it with its base reduced by reviewFactor; extractMax and remove drop
+ * a topic like any other queue. A topic's schedule (base and time of the last
+ * review) can be read and set directly, so it can be saved and replayed.
+ *
+ * Nothing is rescored as time passes. Entries are ordered on the log-domain key
+ * ln(base) - rate * (lastStudied - epoch); the rate * (now - epoch) term is the
+ * same for every topic, so the order never changes by itself. Current urgencies
+ * are only computed for the nodes handed out. When keys drift too far from the
+ * epoch the queue is rebuilt around a new one to keep full double precision.
+ */
+public class SpacedRepetitionQueue implements WeaknessQueue {
+    public static final double DEFAULT_DOUBLING_HOURS = 24.0;
+    public static final double DEFAULT_REVIEW_FACTOR = 0.5;
+    private static final double REBASE_SPAN = 512.0; // log-units (512 doublings)
+    private static final double MIN_WEAKNESS = 1e-6;
+    
+    private WeaknessHeap heap; // keyed by the log-domain priority
+    private Map<String, Schedule> schedules;
+    private LongSupplier clock;
+    private double rate; // ln-urgency gained per millisecond
+    private double reviewFactor;
+    private long epoch;
+    
+    private static class Schedule {
+        private WeaknessHeap.HeapNode node; // as inserted, for names and subject
+        private double base;
+        private long lastStudied;
+    }
+    
+    public SpacedRepetitionQueue() {
+        this(DEFAULT_DOUBLING_HOURS, DEFAULT_REVIEW_FACTOR, System::currentTimeMillis);
+    }
+    
+    /**
+     * @param clock current time in milliseconds
+     */
+    public SpacedRepetitionQueue(double doublingHours, double reviewFactor, LongSupplier clock) {
+        this.heap = new WeaknessHeap();
+        this.schedules = new HashMap<>();
+        this.clock = clock;
+        this.rate = Math.log(2) / (doublingHours * 3600_000.0);
+        this.reviewFactor = reviewFactor;
+        this.epoch = clock.getAsLong();
+    }
+    
+    /**
+     * Queues a topic as if it was just studied, with the node's weakness as base.
+     */
+    @Override
+    public void insert(WeaknessHeap.HeapNode node) {
+        schedule(node, node.getWeaknessScore(), now());
+    }
+    
+    /**
+     * Takes the most urgent topic out of the queue.
+     */
+    @Override
+    public WeaknessHeap.HeapNode extractMax() {
+        WeaknessHeap.HeapNode top = heap.peekMax();
+        return top == null ? null : remove(top.getTopicId());
+    }
+    
+    /**
+     * Reviews the most urgent topic now: it stays queued with a decayed base.
+     * Returns it with the urgency it had, or null if the queue is empty.
+     */
+    public WeaknessHeap.HeapNode review() {
+        WeaknessHeap.HeapNode top = heap.peekMax();
+        if (top == null) return null;
+        
+        long now = now();
+        Schedule schedule = schedules.get(top.getTopicId());
+        WeaknessHeap.HeapNode reviewed = current(schedule, now);
+        reschedule(top.getTopicId(), Math.max(MIN_WEAKNESS, schedule.base * reviewFactor), now);
+        return reviewed;
+    }
+    
+    /**
+     * Queues a topic on an explicit schedule (replacing any it had).
+     */
+    public void schedule(WeaknessHeap.HeapNode node, double base, long lastStudied) {
+        Schedule schedule = new Schedule();
+        schedule.node = node;
+        schedule.base = base;
+        schedule.lastStudied = lastStudied;
+        schedules.put(node.getTopicId(), schedule);
+        push(schedule);
+    }
+    
+    /**
+     * Moves a queued topic to a new schedule. Returns false if it is not queued.
+     */
+    public boolean reschedule(String topicId, double base, long lastStudied) {
+        Schedule schedule = schedules.get(topicId);
+        if (schedule == null) return false;
+        schedule.base = base;
+        schedule.lastStudied = lastStudied;
+        push(schedule);
+        return true;
+    }
+    
+    /**
+     * Base weakness of a queued topic, NaN if it is not queued.
+     */
+    public double getBase(String topicId) {
+        Schedule schedule = schedules.get(topicId);
+        return schedule == null ? Double.NaN : schedule.base;
+    }
+    
+    /**
+     * When a queued topic was last studied (ms), Long.MIN_VALUE if it is not queued.
+     */
+    public long getLastStudied(String topicId) {
+        Schedule schedule = schedules.get(topicId);
+        return schedule == null ? Long.MIN_VALUE : schedule.lastStudied;
+    }
+    
+    @Override
+    public WeaknessHeap.HeapNode peekMax() {
+        WeaknessHeap.HeapNode top = heap.peekMax();
+        return top == null ? null : current(schedules.get(top.getTopicId()), now());
+    }
+    
+    @Override
+    public WeaknessHeap.HeapNode get(String topicId) {
+        Schedule schedule = schedules.get(topicId);
+        return schedule == null ? null : current(schedule, now());
+    }
+    
+    /**
+     * Sets a new base weakness; time since the last review is kept.
+     */
+    @Override
+    public boolean update(String topicId, double weaknessScore) {
+        Schedule schedule = schedules.get(topicId);
+        if (schedule == null) return false;
+        schedule.base = weaknessScore;
+        push(schedule);
+        return true;
+    }
+    
+    @Override
+    public WeaknessHeap.HeapNode remove(String topicId) {
+        Schedule schedule = schedules.remove(topicId);
+        if (schedule == null) return null;
+        heap.remove(topicId);
+        return current(schedule, now());
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+    
+    @Override
+    public int size() {
+        return heap.size();
+    }
+    
+    @Override
+    public long getVersion() {
+        return heap.getVersion();
+    }
+    
+    @Override
+    public List<WeaknessHeap.HeapNode> getSortedNodes() {
+        return toCurrent(heap.getSortedNodes());
+    }
+    
+    @Override
+    public List<WeaknessHeap.HeapNode> topK(int k) {
+        return toCurrent(heap.topK(k));
+    }
+    
+    private void push(Schedule schedule) {
+        if (rate * Math.abs(schedule.lastStudied - epoch) > REBASE_SPAN) {
+            rebase(schedule.lastStudied);
+        }
+        heap.insert(schedule.node.withWeaknessScore(key(schedule)));
+    }
+    
+    private double key(Schedule schedule) {
+        return Math.log(Math.max(MIN_WEAKNESS, schedule.base)) - rate * (schedule.lastStudied - epoch);
+    }
+    
+    /**
+     * Moves the epoch; every key shifts by the same amount, so order is unchanged.
+     */
+    private void rebase(long newEpoch) {
+        epoch = newEpoch;
+        for (Schedule schedule : schedules.values()) {
+            heap.update(schedule.node.getTopicId(), key(schedule));
+        }
+    }
+    
+    private WeaknessHeap.HeapNode current(Schedule schedule, long now) {
+        return schedule.node.withWeaknessScore(schedule.base * Math.exp(rate * (now - schedule.lastStudied)));
+    }
+    
+    private List<WeaknessHeap.HeapNode> toCurrent(List<WeaknessHeap.HeapNode> keyed) {
+        long now = now();
+        List<WeaknessHeap.HeapNode> result = new ArrayList<>(keyed.size());
+        for (WeaknessHeap.HeapNode node : keyed) {
+            result.add(current(schedules.get(node.getTopicId()), now));
+        }
+        return result;
+    }
+    
+    private long now() {
+        return clock.getAsLong();
+    }
+}
@@ -1,103 +1,653 @@
 package backend.datastructure;
 
+import backend.model.Prerequisite;
 import backend.model.Subject;
 import java.util.*;
+import java.util.function.IntFunction;
 
 /**
  * Graph implementation using Adjacency List
  * Handles prerequisite relationships and topological sorting
+ * Edits are synchronized; other threads should read through snapshot()
+ *
+ * compact() switches a graph that is mostly read to interned storage: the
+ * CSR arrays of CompactGraph become the only copy of the subjects, edges and
+ * positions (the order is a view of its subject slots), and the String-keyed
+ * maps below are null until the next structural edit expands them again.
+ * The public String-keyed API works the same either way.
  */
 public class SubjectGraph {
+    // A batch this many times smaller than the graph is ordered incrementally
+    private static final int INCREMENTAL_BATCH_RATIO = 16;
+    
     private Map<String, Subject> subjects;
     private Map<String, List<String>> adjacencyList; 
+    private Map<String, List<String>> reverseAdjacencyList;
+    private Map<String, Subject> subjectsView;
+    private Map<String, List<String>> adjacencyView;
+    
+    // Topological order maintained incrementally (Pearce-Kelly)
+    private List<Subject> order;
+    private Map<String, Integer> position;
+    private boolean orderValid;
+    
+    private CycleChecker cycleChecker;
+    private CriticalPath criticalPath;
+    private ReachabilityIndex reachability; // built on first transitive query
+    
+    // Bumped on every edit; used to reuse the frozen CSR form and snapshots
+    private volatile long version;
+    private CompactGraph frozen;
+    private long frozenVersion = -1;
+    private List<Subject> orderCopy;
+    private long orderCopyVersion = -1;
+    
+    // Only storage while compacted: dense id = position in the order
+    private CompactGraph compact;
+    
+    // Last published snapshot and what changed since
+    private volatile GraphSnapshot published;
+    private Set<String> changedSources;
+    private Set<String> changedSubjects;
+    private volatile long stateVersion; // bumped when a subject's score, effort or position changes
+    private Subject.ChangeListener subjectListener;
+    
+    // Edge maps, positions and closure are shared with forks until edited
+    private boolean sharedStructure;
     
     public SubjectGraph() {
         subjects = new HashMap<>();
         adjacencyList = new HashMap<>();
+        reverseAdjacencyList = new HashMap<>();
+        subjectsView = new SubjectsView();
+        adjacencyView = new AdjacencyView();
+        order = new ArrayList<>();
+        position = new HashMap<>();
+        orderValid = true;
+        cycleChecker = new CycleChecker(this);
+        criticalPath = new CriticalPath(this);
+        published = GraphSnapshot.empty();
+        changedSources = new HashSet<>();
+        changedSubjects = new HashSet<>();
+        subjectListener = new Subject.ChangeListener() {
+            @Override
+            public void subjectChanged(Subject subject) { SubjectGraph.this.subjectChanged(subject); }
+            
+            @Override
+            public void subjectMoved(Subject subject) { SubjectGraph.this.subjectMoved(subject); }
+        };
+    }
+    
+    /**
+     * Same curriculum over fresh Subject objects, so scores stay independent.
+     * The prerequisite structure (edge lists, order positions, closure) is
+     * shared rather than copied; whichever graph edits it first takes a
+     * private copy, so many forks of one catalogue cost little more than
+     * their subjects.
+     */
+    public synchronized SubjectGraph fork() {
+        if (!orderValid) rebuildOrder();
+        SubjectGraph copy = new SubjectGraph();
+        List<Subject> owned = new ArrayList<>(order.size());
+        for (Subject subject : order) {
+            Subject own = subject.copy();
+            own.addChangeListener(copy.subjectListener);
+            owned.add(own);
+        }
+        if (compact != null) {
+            copy.compact = compact.withSubjects(owned);
+            copy.frozen = copy.compact;
+            copy.frozenVersion = copy.version;
+            copy.subjects = null;
+            copy.order = copy.compact.subjectList();
+            copy.adjacencyList = null;
+            copy.reverseAdjacencyList = null;
+            copy.position = null;
+        } else {
+            for (Subject own : owned) copy.subjects.put(own.getId(), own);
+            copy.order = owned;
+            copy.adjacencyList = adjacencyList;
+            copy.reverseAdjacencyList = reverseAdjacencyList;
+            copy.position = position;
+        }
+        copy.orderValid = orderValid;
+        copy.reachability = reachability;
+        
+        // The first snapshot reuses this graph's immutable dependent lists
+        copy.published = snapshot().withoutSubjects();
+        copy.changedSubjects.addAll(copy.subjectsView.keySet());
+        copy.sharedStructure = true;
+        sharedStructure = true;
+        return copy;
+    }
+    
+    /**
+     * Takes private copies of the structure shared with forks before changing it
+     */
+    private void ownStructure() {
+        thaw();
+        if (!sharedStructure) return;
+        Map<String, List<String>> forward = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : adjacencyList.entrySet()) {
+            forward.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        Map<String, List<String>> backward = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : reverseAdjacencyList.entrySet()) {
+            backward.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        adjacencyList = forward;
+        reverseAdjacencyList = backward;
+        position = new HashMap<>(position);
+        reachability = null; // rebuilt on demand
+        sharedStructure = false;
+    }
+    
+    /**
+     * Switches to interned storage; see the class comment. The order is
+     * repaired first so that dense ids match positions.
+     */
+    public synchronized void compact() {
+        if (compact != null) return;
+        if (!orderValid) rebuildOrder();
+        compact = CompactGraph.of(order, adjacencyList, reverseAdjacencyList);
+        frozen = compact;
+        frozenVersion = version;
+        subjects = null;
+        order = compact.subjectList();
+        adjacencyList = null;
+        reverseAdjacencyList = null;
+        position = null;
+    }
+    
+    public synchronized boolean isCompact() {
+        return compact != null;
+    }
+    
+    /**
+     * Expands the String-keyed maps from the CSR arrays before an edit
+     */
+    private void thaw() {
+        if (compact == null) return;
+        int n = compact.size();
+        subjects = new HashMap<>(n * 2);
+        order = new ArrayList<>(n);
+        adjacencyList = new HashMap<>(n * 2);
+        reverseAdjacencyList = new HashMap<>(n * 2);
+        position = new HashMap<>(n * 2);
+        for (int v = 0; v < n; v++) {
+            Subject subject = compact.getSubject(v);
+            String id = subject.getId();
+            subjects.put(id, subject);
+            order.add(subject);
+            adjacencyList.put(id, new ArrayList<>(compact.dependentIds(v)));
+            reverseAdjacencyList.put(id, new ArrayList<>(compact.prerequisiteIds(v)));
+            position.put(id, v);
+        }
+        compact = null;
+        if (sharedStructure) {
+            // The maps are private now, but the closure may still be a fork's
+            reachability = null;
+            sharedStructure = false;
+        }
     }
     
-    public void addSubject(Subject subject) {
-        subjects.put(subject.getId(), subject);
-        if (!adjacencyList.containsKey(subject.getId())) {
-            adjacencyList.put(subject.getId(), new ArrayList<>());
+    public synchronized void addSubject(Subject subject) {
+        String id = subject.getId();
+        Subject current = subjectsView.get(id);
+        if (current != subject) {
+            subject.addChangeListener(subjectListener);
+        }
+        if (current != null) {
+            // While compacted this writes straight into the subject slots
+            order.set(positionOf(id), subject);
+        } else {
+            ownStructure();
+            // A new subject has no edges yet, so it can go last
+            position.put(id, order.size());
+            order.add(subject);
+        }
+        if (compact == null) subjects.put(id, subject);
+        changedSubjects.add(id);
+        changedSources.add(id);
+        version++;
+        if (compact == null && !adjacencyList.containsKey(id)) {
+            adjacencyList.put(id, new ArrayList<>());
+        }
+        if (compact == null && !reverseAdjacencyList.containsKey(id)) {
+            reverseAdjacencyList.put(id, new ArrayList<>());
+        }
+        if (reachability != null) {
+            reachability.addSubject(id);
         }
     }
     
-    public void addPrerequisite(String subjectId, String prerequisiteId) {
-        if (subjects.containsKey(subjectId) && subjects.containsKey(prerequisiteId)) {
+    public synchronized void addPrerequisite(String subjectId, String prerequisiteId) {
+        if (subjectsView.containsKey(subjectId) && subjectsView.containsKey(prerequisiteId)) {
+            // Duplicate edges would inflate in-degrees
+            if (adjacencyView.get(prerequisiteId).contains(subjectId)) return;
+            ownStructure();
             adjacencyList.get(prerequisiteId).add(subjectId);
+            reverseAdjacencyList.get(subjectId).add(prerequisiteId);
+            changedSources.add(prerequisiteId);
+            version++;
+            if (orderValid) {
+                reorder(prerequisiteId, subjectId);
+            }
+            if (reachability != null) {
+                reachability.addEdge(prerequisiteId, subjectId);
+            }
         }
     }
-
+    
+    /**
+     * Adds a whole batch of prerequisites atomically.
+     * Duplicates are skipped and a single Kahn pass validates the result
+     * (small batches reuse the incremental reorder instead);
+     * if the batch would create a cycle nothing is applied.
+     * Returns the number of new edges.
+     */
+    public synchronized int addPrerequisites(Collection<Prerequisite> edges) {
+        for (Prerequisite edge : edges) {
+            if (!subjectsView.containsKey(edge.getSubjectId())) {
+                throw new IllegalArgumentException("Unknown subject: " + edge.getSubjectId());
+            }
+            if (!subjectsView.containsKey(edge.getPrerequisiteId())) {
+                throw new IllegalArgumentException("Unknown subject: " + edge.getPrerequisiteId());
+            }
+        }
+        
+        // Drop edges repeated in the batch or already in the graph
+        List<Prerequisite> added = new ArrayList<>();
+        Set<Prerequisite> seen = new HashSet<>();
+        Map<String, Set<String>> existing = new HashMap<>();
+        for (Prerequisite edge : edges) {
+            if (!seen.add(edge)) continue;
+            Set<String> dependents = existing.computeIfAbsent(edge.getPrerequisiteId(),
+                id -> new HashSet<>(adjacencyView.get(id)));
+            if (dependents.contains(edge.getSubjectId())) continue;
+            
+            ownStructure();
+            adjacencyList.get(edge.getPrerequisiteId()).add(edge.getSubjectId());
+            reverseAdjacencyList.get(edge.getSubjectId()).add(edge.getPrerequisiteId());
+            changedSources.add(edge.getPrerequisiteId());
+            added.add(edge);
+        }
+        if (added.isEmpty()) return 0;
+        version++;
+        
+        boolean wasValid = orderValid;
+        if (wasValid && added.size() * INCREMENTAL_BATCH_RATIO < subjectsView.size()) {
+            // Small batch against a big graph: repair the order edge by edge
+            for (Prerequisite edge : added) {
+                reorder(edge.getPrerequisiteId(), edge.getSubjectId());
+                if (!orderValid) break;
+            }
+        } else {
+            // One Kahn pass for the whole batch; a failed pass leaves the old order intact
+            orderValid = false;
+            rebuildOrder();
+        }
+        if (!orderValid) {
+            CompactGraph frozen = freeze();
+            List<String> cycle = new ArrayList<>();
+            for (int id : frozen.findCycle()) cycle.add(frozen.getSubject(id).getId());
+            cycle.add(cycle.get(0));
+            
+            // Batch edges were appended, so undo them from the tail
+            for (int i = added.size() - 1; i >= 0; i--) {
+                Prerequisite edge = added.get(i);
+                List<String> dependents = adjacencyList.get(edge.getPrerequisiteId());
+                dependents.remove(dependents.size() - 1);
+                List<String> prerequisites = reverseAdjacencyList.get(edge.getSubjectId());
+                prerequisites.remove(prerequisites.size() - 1);
+            }
+            version++;
+            orderValid = wasValid; // dropping edges keeps any order valid
+            throw new CyclicDependencyException(cycle);
+        }
+        // Cheaper to rebuild the closure on demand than to insert edge by edge
+        reachability = null;
+        return added.size();
+    }
+    
     /**
      * LOGIC UPGRADE: Check if adding a dependency creates a cycle.
      * Returns true if safe to add, false if it creates a loop.
      */
-    public boolean canAddDependency(String subjectId, String prerequisiteId) {
-        // If they are the same, it's a self-loop
-        if (subjectId.equals(prerequisiteId)) return false;
-
-        // Temporarily add edge
-        List<String> deps = adjacencyList.get(prerequisiteId);
-        if (deps == null) deps = new ArrayList<>();
-        deps.add(subjectId);
-        adjacencyList.put(prerequisiteId, deps);
-
-        // Check for cycle
-        boolean hasCycle = hasCycle();
-
-        // Remove edge (backtrack)
-        deps.remove(subjectId);
-
-        return !hasCycle;
+    public synchronized boolean canAddDependency(String subjectId, String prerequisiteId) {
+        return !cycleChecker.createsCycle(subjectId, prerequisiteId);
     }
     
     /**
-     * Kahn's Algorithm for Topological Sorting
+     * Vets many candidate edges at once; each is checked against the current graph.
      */
-    public List<Subject> getTopologicalOrder() {
-        Map<String, Integer> inDegree = new HashMap<>();
-        
-        for (String id : subjects.keySet()) inDegree.put(id, 0);
-        
-        for (List<String> edges : adjacencyList.values()) {
-            for (String dest : edges) {
-                inDegree.put(dest, inDegree.getOrDefault(dest, 0) + 1);
+    public synchronized boolean[] canAddDependencies(List<Prerequisite> candidates) {
+        return cycleChecker.validate(candidates);
+    }
+    
+    /**
+     * Returns the topological order (empty if a cycle exists) as an
+     * immutable copy, safe to keep and to hand to other threads; later
+     * edits do not show up in it. The copy is cached until the next edit.
+     */
+    public synchronized List<Subject> getTopologicalOrder() {
+        if (!orderValid) rebuildOrder();
+        if (!orderValid) return Collections.emptyList();
+        if (orderCopyVersion != version) {
+            orderCopy = List.copyOf(order);
+            orderCopyVersion = version;
+        }
+        return orderCopy;
+    }
+    
+    public synchronized boolean hasCycle() {
+        if (!orderValid) rebuildOrder();
+        return !orderValid;
+    }
+    
+    /**
+     * Consistent, immutable view of the graph for readers on any thread.
+     * Lock-free while nothing changed; otherwise the next snapshot is built
+     * once (under the edit lock) and published for everyone.
+     */
+    public GraphSnapshot snapshot() {
+        GraphSnapshot current = published;
+        if (current.getVersion() == version && current.getStateVersion() == stateVersion) return current;
+        synchronized (this) {
+            if (published.getVersion() != version || published.getStateVersion() != stateVersion) {
+                published = published.next(version, stateVersion, subjectsView, changedSubjects,
+                    adjacencyView, changedSources);
+                // Fresh sets: clear() keeps the table, and iterating it would cost O(V) next time
+                changedSources = new HashSet<>();
+                changedSubjects = new HashSet<>();
             }
+            return published;
+        }
+    }
+    
+    /**
+     * Int-indexed CSR view of the current graph, rebuilt only after edits.
+     */
+    public synchronized CompactGraph freeze() {
+        if (compact != null) return compact;
+        if (frozenVersion != version) {
+            frozen = CompactGraph.of(order, adjacencyList);
+            frozenVersion = version;
         }
+        return frozen;
+    }
+    
+    /**
+     * Pearce-Kelly update for a new edge from -> to.
+     * Only subjects positioned between the two endpoints are moved.
+     */
+    private void reorder(String from, String to) {
+        int lower = position.get(to);
+        int upper = position.get(from);
+        if (lower > upper) return;
         
-        Queue<Subject> queue = new LinkedList<>();
-        for (String id : subjects.keySet()) {
-            if (inDegree.get(id) == 0) queue.add(subjects.get(id));
+        // Subjects reachable from 'to' that currently sit before 'from'
+        List<String> forward = region(to, adjacencyList, lower, upper);
+        if (forward.contains(from)) {
+            // Edge closes a loop; fall back to Kahn until it is gone
+            orderValid = false;
+            return;
         }
+        // Subjects that reach 'from' and currently sit after 'to'
+        List<String> backward = region(from, reverseAdjacencyList, lower + 1, upper);
         
-        List<Subject> result = new ArrayList<>();
-        int count = 0;
-
-        while (!queue.isEmpty()) {
-            Subject current = queue.poll();
-            result.add(current);
-            count++;
-            
-            if (adjacencyList.containsKey(current.getId())) {
-                for (String neighbor : adjacencyList.get(current.getId())) {
-                    inDegree.put(neighbor, inDegree.get(neighbor) - 1);
-                    if (inDegree.get(neighbor) == 0) {
-                        queue.add(subjects.get(neighbor));
-                    }
+        Comparator<String> byPosition = Comparator.comparingInt(position::get);
+        forward.sort(byPosition);
+        backward.sort(byPosition);
+        
+        List<Integer> slots = new ArrayList<>(forward.size() + backward.size());
+        for (String id : backward) slots.add(position.get(id));
+        for (String id : forward) slots.add(position.get(id));
+        Collections.sort(slots);
+        
+        // Everything that leads to 'from' goes ahead of everything 'to' leads to
+        int i = 0;
+        for (String id : backward) place(id, slots.get(i++));
+        for (String id : forward) place(id, slots.get(i++));
+    }
+    
+    /**
+     * Collects subjects reachable from start whose position lies in [lower, upper].
+     */
+    private List<String> region(String start, Map<String, List<String>> edges, int lower, int upper) {
+        List<String> found = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> stack = new ArrayDeque<>();
+        stack.push(start);
+        visited.add(start);
+        
+        while (!stack.isEmpty()) {
+            String current = stack.pop();
+            found.add(current);
+            for (String next : edges.get(current)) {
+                int pos = position.get(next);
+                if (pos >= lower && pos <= upper && visited.add(next)) {
+                    stack.push(next);
                 }
             }
         }
+        return found;
+    }
+    
+    /**
+     * Direct prerequisites of a subject.
+     */
+    public synchronized List<Subject> getPrerequisites(String subjectId) {
+        List<String> ids = prerequisitesOf(subjectId);
+        return toSubjects(ids == null ? Collections.emptyList() : ids);
+    }
+    
+    /**
+     * Subjects that list this one as a direct prerequisite.
+     */
+    public synchronized List<Subject> getDependents(String subjectId) {
+        return toSubjects(adjacencyView.getOrDefault(subjectId, Collections.emptyList()));
+    }
+    
+    /**
+     * Every subject that must be studied before this one, in study order.
+     */
+    public synchronized List<Subject> getAllPrerequisites(String subjectId) {
+        return sortedSubjects(reachability().getAncestors(subjectId));
+    }
+    
+    /**
+     * Every subject that completing this one (eventually) unlocks, in study order.
+     */
+    public synchronized List<Subject> getUnlockedBy(String subjectId) {
+        return sortedSubjects(reachability().getDescendants(subjectId));
+    }
+    
+    /**
+     * True if prerequisiteId must be studied (directly or indirectly) before subjectId.
+     */
+    public synchronized boolean dependsOn(String subjectId, String prerequisiteId) {
+        return reachability().reaches(prerequisiteId, subjectId);
+    }
+    
+    private ReachabilityIndex reachability() {
+        if (reachability == null) {
+            reachability = ReachabilityIndex.of(this);
+        }
+        return reachability;
+    }
+    
+    /**
+     * The closure if some query already built it, otherwise null.
+     */
+    ReachabilityIndex builtReachability() {
+        return reachability;
+    }
+    
+    private List<Subject> toSubjects(List<String> ids) {
+        List<Subject> result = new ArrayList<>(ids.size());
+        for (String id : ids) result.add(subjectsView.get(id));
+        return result;
+    }
+    
+    private List<Subject> sortedSubjects(List<String> ids) {
+        if (!hasCycle()) {
+            ids.sort(Comparator.comparingInt(this::positionOf));
+        }
+        return toSubjects(ids);
+    }
+    
+    /**
+     * Longest weighted path / earliest finish analysis, kept up to date on score changes.
+     */
+    public CriticalPath getCriticalPath() {
+        return criticalPath;
+    }
+    
+    private synchronized void subjectChanged(Subject subject) {
+        // Ignore subjects that have since been replaced under the same id
+        if (subjectsView.get(subject.getId()) == subject) {
+            changedSubjects.add(subject.getId());
+            stateVersion++;
+            criticalPath.subjectChanged(subject);
+        }
+    }
+    
+    private synchronized void subjectMoved(Subject subject) {
+        if (subjectsView.get(subject.getId()) == subject) {
+            changedSubjects.add(subject.getId());
+            stateVersion++;
+        }
+    }
+    
+    /**
+     * Direct prerequisites of a subject.
+     */
+    List<String> prerequisitesOf(String id) {
+        if (compact == null) return reverseAdjacencyList.get(id);
+        int v = compact.indexOf(id);
+        return v < 0 ? null : compact.prerequisiteIds(v);
+    }
+    
+    /**
+     * Position of a subject in the cached order (only meaningful while acyclic).
+     */
+    int positionOf(String id) {
+        return compact != null ? compact.indexOf(id) : position.get(id);
+    }
+    
+    private void place(String id, int slot) {
+        position.put(id, slot);
+        order.set(slot, subjects.get(id));
+    }
+    
+    /**
+     * Recovers the cached order with a full Kahn pass over the CSR form.
+     * Only needed after a cycle was introduced.
+     */
+    private void rebuildOrder() {
+        ownStructure();
+        CompactGraph graph = freeze();
+        int[] sorted = graph.topologicalOrder();
+        
+        // If not every subject was emitted, there is still a cycle
+        if (sorted.length != graph.size()) return;
+        
+        List<Subject> result = new ArrayList<>(sorted.length);
+        for (int i = 0; i < sorted.length; i++) {
+            Subject s = graph.getSubject(sorted[i]);
+            result.add(s);
+            position.put(s.getId(), i);
+        }
+        order = result;
+        orderValid = true;
+    }
+    
+    /**
+     * Read-only view that keeps following the subject map after thaw() rebuilds it,
+     * and reads the subject slots instead while the graph is compacted
+     */
+    private class SubjectsView extends AbstractMap<String, Subject> {
+        @Override
+        public int size() { return compact != null ? compact.size() : subjects.size(); }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            if (compact == null) return subjects.containsKey(key);
+            return key instanceof String && compact.indexOf((String) key) >= 0;
+        }
+        
+        @Override
+        public Subject get(Object key) {
+            if (compact == null) return subjects.get(key);
+            int v = key instanceof String ? compact.indexOf((String) key) : -1;
+            return v < 0 ? null : compact.getSubject(v);
+        }
+        
+        @Override
+        public Set<Map.Entry<String, Subject>> entrySet() {
+            if (compact == null) return Collections.unmodifiableMap(subjects).entrySet();
+            return compactEntries(compact, compact::getSubject);
+        }
+    }
+    
+    /**
+     * Read-only view that keeps following the adjacency map after ownStructure() replaces it,
+     * and reads the CSR arrays instead while the graph is compacted
+     */
+    private class AdjacencyView extends AbstractMap<String, List<String>> {
+        @Override
+        public int size() { return compact != null ? compact.size() : adjacencyList.size(); }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            if (compact == null) return adjacencyList.containsKey(key);
+            return key instanceof String && compact.indexOf((String) key) >= 0;
+        }
         
-        // If count != subjects.size(), there is a cycle (or disconnected parts in cycle)
-        return count == subjects.size() ? result : new ArrayList<>(); // Return empty if cycle detected
+        @Override
+        public List<String> get(Object key) {
+            if (compact == null) return adjacencyList.get(key);
+            int v = key instanceof String ? compact.indexOf((String) key) : -1;
+            return v < 0 ? null : compact.dependentIds(v);
+        }
+        
+        @Override
+        public Set<Map.Entry<String, List<String>>> entrySet() {
+            if (compact == null) return Collections.unmodifiableMap(adjacencyList).entrySet();
+            return compactEntries(compact, compact::dependentIds);
+        }
     }
     
-    public boolean hasCycle() {
-        // If topological sort returns fewer nodes than exist, we have a cycle
-        return getTopologicalOrder().size() != subjects.size();
+    /**
+     * Entries keyed by subject id, one per dense id of the graph
+     */
+    private static <V> Set<Map.Entry<String, V>> compactEntries(CompactGraph graph, IntFunction<V> value) {
+        return new AbstractSet<Map.Entry<String, V>>() {
+            @Override
+            public int size() { return graph.size(); }
+            
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                return new Iterator<Map.Entry<String, V>>() {
+                    private int next;
+                    
+                    @Override
+                    public boolean hasNext() { return next < graph.size(); }
+                    
+                    @Override
+                    public Map.Entry<String, V> next() {
+                        if (next >= graph.size()) throw new NoSuchElementException();
+                        int v = next++;
+                        return new AbstractMap.SimpleImmutableEntry<>(graph.getSubject(v).getId(), value.apply(v));
+                    }
+                };
+            }
+        };
     }
     
-    public Map<String, Subject> getSubjects() { return subjects; }
-    public Map<String, List<String>> getAdjacencyList() { return adjacencyList; }
-}
\ No newline at end of file
+    // Live read-only views, only for the thread that edits the graph
+    public Map<String, Subject> getSubjects() { return subjectsView; }
+    public Map<String, List<String>> getAdjacencyList() { return adjacencyView; }
+    public long getVersion() { return version; }
+}
@@ -0,0 +1,167 @@
+package backend.datastructure;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+import backend.model.Topic;
+
+/**
+ * Leaf-weighted progress of syllabus subtrees.
+ *
+ * With the default weight of one per leaf, answers come from the leaf counts
+ * every Topic caches: O(1) per subtree and nothing lazily loaded is read in.
+ * Other weights need every leaf, so they use an Euler-tour flattening with a
+ * Fenwick tree over the leaves' completion flags. A subtree is the contiguous
+ * range [start, start + size), so its completed and total leaf weight are
+ * O(log n) range queries. Toggles are O(log n) point updates; structural
+ * edits only mark the index stale and it is rebuilt in O(n) on the next query.
+ */
+public class SubtreeProgressIndex {
+    private Topic root;
+    private ToIntFunction<Topic> weight; // null: one per leaf, read from the cached counts
+    private boolean valid;
+    
+    private Map<Topic, Integer> position; // topic -> index in the tour
+    private Topic[] tour;                 // pre-order
+    private int[] weights;                // leaf weight per position, 0 for inner topics
+    private long[] totalPrefix;           // prefix sums of weights
+    private long[] completedTree;         // Fenwick tree, 1-based
+    
+    public SubtreeProgressIndex(Topic root) {
+        this(root, null);
+    }
+    
+    public SubtreeProgressIndex(Topic root, ToIntFunction<Topic> weight) {
+        this.root = root;
+        this.weight = weight;
+    }
+    
+    /**
+     * Leaves count with the given weight (e.g. study hours) from the next query on;
+     * null goes back to one per leaf
+     */
+    public void setWeights(ToIntFunction<Topic> weight) {
+        this.weight = weight;
+        this.valid = false;
+    }
+    
+    /**
+     * Called after topics are attached or detached
+     */
+    public void invalidate() {
+        valid = false;
+    }
+    
+    /**
+     * Called after a topic's completed flag flips
+     */
+    public void completionToggled(Topic topic) {
+        if (weight == null || !valid) return;
+        Integer pos = position.get(topic);
+        if (pos == null || weights[pos] == 0) return;
+        add(pos, topic.isCompleted() ? weights[pos] : -weights[pos]);
+    }
+    
+    public long getCompletedWeight(Topic topic) {
+        if (weight == null) return topic.getCompletedLeafCount();
+        int start = startOf(topic);
+        if (start < 0) return 0;
+        return prefixCompleted(start + topic.getSubtreeSize()) - prefixCompleted(start);
+    }
+    
+    public long getTotalWeight(Topic topic) {
+        if (weight == null) return topic.getLeafCount();
+        int start = startOf(topic);
+        if (start < 0) return 0;
+        return totalPrefix[start + topic.getSubtreeSize()] - totalPrefix[start];
+    }
+    
+    /**
+     * Completed share of the subtree's leaf weight, 0-100
+     */
+    public double getProgress(Topic topic) {
+        long total = getTotalWeight(topic);
+        return total == 0 ? 0.0 : getCompletedWeight(topic) * 100.0 / total;
+    }
+    
+    /**
+     * Progress of every topic, in pre-order. With unit weights only resident
+     * topics are listed (an unloaded subtree shows up as its top topic) in
+     * O(resident); other weights load the whole syllabus, O(n log n).
+     */
+    public Map<String, Double> getProgressReport() {
+        if (weight == null) {
+            Map<String, Double> report = new LinkedHashMap<>();
+            Deque<Topic> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                Topic topic = stack.pop();
+                report.put(topic.getId(), getProgress(topic));
+                if (!topic.isLoaded()) continue;
+                List<Topic> children = topic.getChildren();
+                for (ListIterator<Topic> it = children.listIterator(children.size()); it.hasPrevious();) {
+                    stack.push(it.previous());
+                }
+            }
+            return report;
+        }
+        ensureBuilt();
+        Map<String, Double> report = new LinkedHashMap<>();
+        for (Topic topic : tour) {
+            report.put(topic.getId(), getProgress(topic));
+        }
+        return report;
+    }
+    
+    private int startOf(Topic topic) {
+        ensureBuilt();
+        Integer pos = position.get(topic);
+        return pos == null ? -1 : pos;
+    }
+    
+    private void ensureBuilt() {
+        if (valid) return;
+        int n = root.getSubtreeSize();
+        tour = new Topic[n];
+        weights = new int[n];
+        totalPrefix = new long[n + 1];
+        completedTree = new long[n + 1];
+        position = new HashMap<>(n * 2);
+        
+        int i = 0;
+        for (Iterator<Topic> it = TopicTraversal.preOrder(root); it.hasNext(); i++) {
+            Topic topic = it.next();
+            tour[i] = topic;
+            position.put(topic, i);
+            if (topic.getChildCount() == 0) {
+                weights[i] = Math.max(0, weight.applyAsInt(topic));
+                if (topic.isCompleted()) completedTree[i + 1] = weights[i];
+            }
+            totalPrefix[i + 1] = totalPrefix[i] + weights[i];
+        }
+        
+        // Linear-time Fenwick construction
+        for (int j = 1; j <= n; j++) {
+            int up = j + (j & -j);
+            if (up <= n) completedTree[up] += completedTree[j];
+        }
+        valid = true;
+    }
+    
+    private void add(int pos, long delta) {
+        for (int j = pos + 1; j < completedTree.length; j += j & -j) {
+            completedTree[j] += delta;
+        }
+    }
+    
+    /**
+     * Sum of completed weight over positions [0, end)
+     */
+    private long prefixCompleted(int end) {
+        long sum = 0;
+        for (int j = end; j > 0; j -= j & -j) {
+            sum += completedTree[j];
+        }
+        return sum;
+    }
+}
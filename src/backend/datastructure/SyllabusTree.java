@@ -1,18 +1,118 @@
 package backend.datastructure;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import backend.model.Topic;
 
 /**
  * N-ary Tree implementation for Syllabus hierarchy
+ * An id -> topic index is kept in step with the tree through the root's
+ * TreeListener, so lookups are O(1) no matter where a subtree was attached
+ *
+ * A tree opened from a TopicSource starts with only its root resident. Child
+ * lists are read in when first reached (getChildren, findTopic, a traversal)
+ * and the index then covers just the resident topics. Stored aggregates keep
+ * progress exact meanwhile. Once more topics than the budget are resident,
+ * trim() drops the least recently used subtrees whose structure is unchanged.
+ * Completion changes do not pin a subtree: the progress of every toggled topic
+ * and its ancestors is kept by id and put back when the topic is read in again.
  */
 public class SyllabusTree {
     private Topic root;
+    private Map<String, Topic> index;
+    private SubtreeProgressIndex progressIndex;
+    
+    // Lazy loading: topics whose children were read from the source and may
+    // be unloaded again, least recently used first
+    private TopicSource source;
+    private LinkedHashMap<Topic, Boolean> loaded;
+    private int residentBudget = Integer.MAX_VALUE;
+    
+    // Differences from the source: progress by topic id, and subtrees added on top
+    private Map<String, Progress> progress;
+    private Set<Topic> added;
+    
+    private record Progress(boolean completed, double completion, int completedLeaves, boolean toggled) {}
+    
+    /**
+     * Backing store of a lazily loaded syllabus
+     */
+    public interface TopicSource {
+        /**
+         * The root (id "root") with its stored aggregates; its children load on demand
+         */
+        Topic loadRoot();
+        
+        /**
+         * Ids from just below the root down to the topic itself, or null if not stored
+         */
+        List<String> pathTo(String id);
+    }
     
     public SyllabusTree(String rootTitle) {
-        this.root = new Topic("root", rootTitle);
+        this(new Topic("root", rootTitle), null);
+    }
+    
+    public SyllabusTree(TopicSource source) {
+        this(source.loadRoot(), source);
+    }
+    
+    private SyllabusTree(Topic root, TopicSource source) {
+        this.root = root;
+        this.source = source;
+        this.loaded = new LinkedHashMap<>(16, 0.75f, true);
+        this.index = new HashMap<>();
+        this.progress = new LinkedHashMap<>();
+        this.added = new LinkedHashSet<>();
+        this.progressIndex = new SubtreeProgressIndex(root);
+        index.put(root.getId(), root);
+        root.setTreeListener(new Topic.TreeListener() {
+            @Override
+            public void attached(Topic subtree) {
+                indexSubtree(subtree);
+                pin(subtree.getParent());
+                if (source != null && !insideAdded(subtree.getParent())) added.add(subtree);
+                progressIndex.invalidate();
+            }
+            
+            @Override
+            public void detached(Topic parent, Topic subtree) {
+                unindexSubtree(subtree);
+                pin(parent);
+                added.remove(subtree);
+                progressIndex.invalidate();
+            }
+            
+            @Override
+            public void completionToggled(Topic topic) {
+                progressIndex.completionToggled(topic);
+                if (source != null) rememberProgress(topic);
+            }
+            
+            @Override
+            public void childrenLoaded(Topic parent) {
+                for (Topic child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    index.putIfAbsent(child.getId(), child);
+                    Progress saved = progress.get(child.getId());
+                    if (saved != null && index.get(child.getId()) == child) {
+                        child.restoreProgress(saved.completed(), saved.completion(), saved.completedLeaves());
+                    }
+                }
+                loaded.put(parent, Boolean.TRUE);
+                touch(parent);
+                progressIndex.invalidate();
+            }
+        });
     }
     
     public void addTopic(String parentId, Topic newTopic) {
@@ -22,14 +122,124 @@ public class SyllabusTree {
         }
     }
     
+    /**
+     * O(1) for resident topics; otherwise the path down to the topic is loaded
+     * from the source (after trimming to the budget)
+     */
     public Topic findTopic(String id) {
-        return root.findTopic(id);
+        Topic topic = index.get(id);
+        if (source == null) return topic;
+        if (topic != null) {
+            touch(topic);
+            return topic;
+        }
+        
+        List<String> path = source.pathTo(id);
+        if (path == null) return null;
+        trim();
+        Topic node = root;
+        for (String step : path) {
+            Topic child = node.getFirstChild();
+            while (child != null && !child.getId().equals(step)) child = child.getNextSibling();
+            if (child == null) return null; // removed since it was stored
+            node = child;
+        }
+        return node;
+    }
+    
+    public boolean containsTopic(String id) {
+        return index.containsKey(id) || (source != null && findTopic(id) != null);
+    }
+    
+    /**
+     * Most topics kept resident before trim() starts evicting subtrees
+     */
+    public void setResidentBudget(int topics) {
+        this.residentBudget = Math.max(1, topics);
+        trim();
+    }
+    
+    /**
+     * Topics currently in memory (by id)
+     */
+    public int getResidentCount() {
+        return index.size();
+    }
+    
+    public int getResidentBudget() {
+        return residentBudget;
+    }
+    
+    /**
+     * Evicts the least recently used loaded subtrees until the resident count
+     * fits the budget. Topics that gained or lost children after loading left the
+     * list (see pin), so only subtrees the source still matches go.
+     * Must not run while a traversal is in progress.
+     */
+    public void trim() {
+        boolean evicted = false;
+        Iterator<Topic> it = loaded.keySet().iterator();
+        while (index.size() > residentBudget && it.hasNext()) {
+            Topic topic = it.next();
+            
+            // Ancestors are touched with their descendants, so loaded
+            // descendants are older and already gone: only children remain
+            it.remove();
+            for (Topic child = topic.getFirstChild(); child != null; child = child.getNextSibling()) {
+                unindexSubtree(child);
+            }
+            topic.unloadChildren();
+            evicted = true;
+        }
+        if (evicted) progressIndex.invalidate();
+    }
+    
+    /**
+     * Keeps a topic whose children changed, and its ancestors, resident for good
+     */
+    private void pin(Topic topic) {
+        for (Topic node = topic; node != null; node = node.getParent()) {
+            loaded.remove(node);
+        }
+    }
+    
+    private boolean insideAdded(Topic topic) {
+        for (Topic node = topic; node != null; node = node.getParent()) {
+            if (added.contains(node)) return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Records the progress of a toggled topic and its ancestors, to be put
+     * back if they are unloaded and read in again
+     */
+    private void rememberProgress(Topic topic) {
+        for (Topic node = topic; node != null; node = node.getParent()) {
+            Progress before = progress.get(node.getId());
+            boolean toggled = node == topic || (before != null && before.toggled());
+            progress.put(node.getId(), new Progress(node.isCompleted(), node.getCompletionPercentage(),
+                node.getCompletedLeafCount(), toggled));
+        }
+    }
+    
+    /**
+     * Marks the loaded topics from here up to the root as recently used
+     */
+    private void touch(Topic topic) {
+        for (Topic node = topic; node != null; node = node.getParent()) {
+            loaded.get(node);
+        }
+    }
+    
+    public int size() {
+        return root.getSubtreeSize();
     }
     
     public void removeTopic(String id) {
         Topic target = findTopic(id);
         if (target != null && target.getParent() != null) {
-            target.getParent().getChildren().remove(target);
+            target.getParent().removeChild(target);
         }
     }
     
@@ -37,20 +247,97 @@ public class SyllabusTree {
      * Pre-order traversal for syllabus display
      */
     public List<Topic> getPreOrderTraversal() {
-        List<Topic> result = new ArrayList<>();
-        preOrder(root, result);
+        List<Topic> result = new ArrayList<>(root.getSubtreeSize());
+        preOrderIterator().forEachRemaining(result::add);
         return result;
     }
     
-    private void preOrder(Topic node, List<Topic> list) {
-        list.add(node);
-        for (Topic child : node.getChildren()) {
-            preOrder(child, list);
+    /**
+     * Lazy traversals; the tree must not be restructured while one is in use
+     */
+    public Iterator<Topic> preOrderIterator() {
+        return TopicTraversal.preOrder(root);
+    }
+    
+    public Iterator<Topic> postOrderIterator() {
+        return TopicTraversal.postOrder(root);
+    }
+    
+    public Iterator<Topic> levelOrderIterator() {
+        return TopicTraversal.levelOrder(root);
+    }
+    
+    /**
+     * Pre-order stream of every topic; parallel() splits it across cores
+     */
+    public Stream<Topic> stream() {
+        return TopicTraversal.stream(root, false);
+    }
+    
+    /**
+     * The first topic indexed under an id keeps it, matching the old
+     * first-match-in-pre-order lookup for the usual append-only loading
+     */
+    private void indexSubtree(Topic subtree) {
+        Deque<Topic> stack = new ArrayDeque<>();
+        stack.push(subtree);
+        while (!stack.isEmpty()) {
+            Topic node = stack.pop();
+            index.putIfAbsent(node.getId(), node);
+            if (!node.isLoaded()) continue;
+            for (Topic child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                stack.push(child);
+            }
+        }
+    }
+    
+    private void unindexSubtree(Topic subtree) {
+        Deque<Topic> stack = new ArrayDeque<>();
+        stack.push(subtree);
+        while (!stack.isEmpty()) {
+            Topic node = stack.pop();
+            index.remove(node.getId(), node);
+            loaded.remove(node);
+            if (!node.isLoaded()) continue;
+            for (Topic child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                stack.push(child);
+            }
         }
     }
     
     public Topic getRoot() { return root; }
     
+    /**
+     * Where the syllabus is read from, or null if it is entirely in memory
+     */
+    public TopicSource getSource() { return source; }
+    
+    /**
+     * Subtrees attached on top of the source, in the order they were added
+     */
+    public List<Topic> getAddedSubtrees() { return new ArrayList<>(added); }
+    
+    /**
+     * Completed flags of the topics toggled since the source was opened, by id
+     */
+    public Map<String, Boolean> getCompletionChanges() {
+        Map<String, Boolean> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, Progress> entry : progress.entrySet()) {
+            if (entry.getValue().toggled()) changes.put(entry.getKey(), entry.getValue().completed());
+        }
+        return changes;
+    }
+    
+    /**
+     * Completed/total leaf counts for any subtree in O(log n)
+     */
+    public SubtreeProgressIndex getProgressIndex() { return progressIndex; }
+    
+    /**
+     * Changes whenever any topic in the syllabus is added, removed or toggled
+     */
+    public long getVersion() { return root.getVersion(); }
+    
     public double getOverallProgress() {
         return root.getCompletionPercentage();
     }
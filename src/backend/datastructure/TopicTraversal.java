@@ -0,0 +1,197 @@
+package backend.datastructure;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import backend.model.Topic;
+
+/**
+ * Lazy, non-recursive walks over a Topic subtree.
+ * Pre- and post-order follow the parent/sibling links and need no stack at
+ * all; level-order keeps one queue of the next level. The tree must not be
+ * restructured while a walk is in progress.
+ */
+public final class TopicTraversal {
+    private TopicTraversal() {}
+    
+    public static Iterator<Topic> preOrder(Topic root) {
+        return new Iterator<Topic>() {
+            private Topic next = root;
+            
+            @Override
+            public boolean hasNext() { return next != null; }
+            
+            @Override
+            public Topic next() {
+                if (next == null) throw new NoSuchElementException();
+                Topic current = next;
+                next = preOrderSuccessor(root, current);
+                return current;
+            }
+        };
+    }
+    
+    public static Iterator<Topic> postOrder(Topic root) {
+        return new Iterator<Topic>() {
+            private Topic next = leftmostLeaf(root);
+            
+            @Override
+            public boolean hasNext() { return next != null; }
+            
+            @Override
+            public Topic next() {
+                if (next == null) throw new NoSuchElementException();
+                Topic current = next;
+                if (current == root) next = null;
+                else if (current.getNextSibling() != null) next = leftmostLeaf(current.getNextSibling());
+                else next = current.getParent();
+                return current;
+            }
+        };
+    }
+    
+    public static Iterator<Topic> levelOrder(Topic root) {
+        return new Iterator<Topic>() {
+            private Deque<Topic> queue = new ArrayDeque<>(List.of(root));
+            
+            @Override
+            public boolean hasNext() { return !queue.isEmpty(); }
+            
+            @Override
+            public Topic next() {
+                Topic current = queue.poll();
+                if (current == null) throw new NoSuchElementException();
+                for (Topic child = current.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    queue.add(child);
+                }
+                return current;
+            }
+        };
+    }
+    
+    /**
+     * Pre-order stream; parallel streams split the subtree into disjoint
+     * pre-order ranges
+     */
+    public static Stream<Topic> stream(Topic root, boolean parallel) {
+        return StreamSupport.stream(new PreOrderSpliterator(root), parallel);
+    }
+    
+    /**
+     * Next topic after current in a pre-order walk of root, or null at the end
+     */
+    static Topic preOrderSuccessor(Topic root, Topic current) {
+        if (current.getFirstChild() != null) return current.getFirstChild();
+        for (Topic node = current; node != root; node = node.getParent()) {
+            if (node.getNextSibling() != null) return node.getNextSibling();
+        }
+        return null;
+    }
+    
+    private static Topic leftmostLeaf(Topic node) {
+        while (node.getFirstChild() != null) node = node.getFirstChild();
+        return node;
+    }
+    
+    /**
+     * Pre-order spliterator over a queue of pending work. Each entry is either a
+     * single topic or a whole subtree; splitting hands the leading entries
+     * (an earlier pre-order range) to the new spliterator. Sizes come from the
+     * cached subtree sizes, so they are exact.
+     */
+    private static final class PreOrderSpliterator implements Spliterator<Topic> {
+        private static final class Entry {
+            final Topic topic;
+            final boolean subtree;
+            
+            Entry(Topic topic, boolean subtree) {
+                this.topic = topic;
+                this.subtree = subtree;
+            }
+            
+            int size() { return subtree ? topic.getSubtreeSize() : 1; }
+        }
+        
+        private Deque<Entry> pending;
+        private long size;
+        
+        PreOrderSpliterator(Topic root) {
+            this.pending = new ArrayDeque<>();
+            pending.add(new Entry(root, true));
+            this.size = root.getSubtreeSize();
+        }
+        
+        private PreOrderSpliterator(Deque<Entry> pending, long size) {
+            this.pending = pending;
+            this.size = size;
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super Topic> action) {
+            Entry entry = pending.pollFirst();
+            if (entry == null) return false;
+            if (entry.subtree) pushChildren(entry.topic);
+            size--;
+            action.accept(entry.topic);
+            return true;
+        }
+        
+        @Override
+        public void forEachRemaining(Consumer<? super Topic> action) {
+            Entry entry;
+            while ((entry = pending.pollFirst()) != null) {
+                if (!entry.subtree) {
+                    action.accept(entry.topic);
+                    continue;
+                }
+                Topic root = entry.topic;
+                for (Topic node = root; node != null; node = preOrderSuccessor(root, node)) {
+                    action.accept(node);
+                }
+            }
+            size = 0;
+        }
+        
+        @Override
+        public Spliterator<Topic> trySplit() {
+            // A lone subtree is opened up so that there is something to hand over
+            if (pending.size() == 1 && pending.peekFirst().subtree
+                    && pending.peekFirst().topic.getChildCount() > 0) {
+                Entry only = pending.pollFirst();
+                pushChildren(only.topic);
+                pending.addFirst(new Entry(only.topic, false));
+            }
+            if (pending.size() < 2) return null;
+            
+            Deque<Entry> prefix = new ArrayDeque<>();
+            long prefixSize = 0;
+            while (pending.size() > 1 && prefixSize < size / 2) {
+                Entry entry = pending.pollFirst();
+                prefix.addLast(entry);
+                prefixSize += entry.size();
+            }
+            size -= prefixSize;
+            return new PreOrderSpliterator(prefix, prefixSize);
+        }
+        
+        /**
+         * Puts the children's subtrees at the front, first child first
+         */
+        private void pushChildren(Topic topic) {
+            List<Topic> children = topic.getChildren();
+            for (ListIterator<Topic> it = children.listIterator(children.size()); it.hasPrevious();) {
+                pending.addFirst(new Entry(it.previous(), true));
+            }
+        }
+        
+        @Override
+        public long estimateSize() { return size; }
+        
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+    }
+}
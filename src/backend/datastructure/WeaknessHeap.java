@@ -2,21 +2,38 @@ package backend.datastructure;
 
 import backend.model.Subject;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * Max-Heap implementation for prioritizing weak topics
  * Higher weakness score = Higher priority
+ * Indexed by topicId: at most one entry per topic, updatable in O(log n)
+ * Ordering runs on a PrimitiveMaxHeap; nodes sit in a slab addressed by handle
  */
-public class WeaknessHeap {
-    private List<HeapNode> heap;
+public class WeaknessHeap implements WeaknessQueue {
+    private PrimitiveMaxHeap heap;
+    private HeapNode[] nodes;           // slab: handle -> node
+    private int[] freeHandles;          // recycled slab slots
+    private int freeCount;
+    private int nextHandle;
+    private Map<String, Integer> handles; // topicId -> handle
+    private long version; // bumped on every change
     
+    /**
+     * Immutable; a change of weakness swaps in a new node
+     */
     public static class HeapNode {
-        private String topicId;
-        private String topicName;
-        private double weaknessScore; // 100 - performance
-        private String subjectId;
-        private Subject subjectRef;
+        private final String topicId;
+        private final String topicName;
+        private final double weaknessScore; // 100 - performance
+        private final String subjectId;
+        private final Subject subjectRef;
         
         public HeapNode(String topicId, String topicName, double weaknessScore, String subjectId, Subject subject) {
             this.topicId = topicId;
@@ -26,6 +43,13 @@ public class WeaknessHeap {
             this.subjectRef = subject;
         }
         
+        /**
+         * The same topic with another weakness
+         */
+        public HeapNode withWeaknessScore(double weaknessScore) {
+            return new HeapNode(topicId, topicName, weaknessScore, subjectId, subjectRef);
+        }
+        
         // Getters
         public String getTopicId() { return topicId; }
         public String getTopicName() { return topicName; }
@@ -35,88 +59,176 @@ public class WeaknessHeap {
     }
     
     public WeaknessHeap() {
-        heap = new ArrayList<>();
+        heap = new PrimitiveMaxHeap();
+        nodes = new HeapNode[16];
+        freeHandles = new int[16];
+        handles = new HashMap<>();
     }
     
+    /**
+     * Upsert: a topic already in the heap is replaced by the new node.
+     */
+    @Override
     public void insert(HeapNode node) {
-        heap.add(node);
-        heapifyUp(heap.size() - 1);
+        Integer handle = handles.get(node.getTopicId());
+        if (handle != null) {
+            nodes[handle] = node;
+            heap.update(handle, node.getWeaknessScore());
+        } else {
+            int h = allocate(node);
+            handles.put(node.getTopicId(), h);
+            heap.push(h, node.getWeaknessScore());
+        }
+        version++;
     }
     
+    /**
+     * Changes the weakness of a queued topic. Returns false if it is not queued.
+     */
+    @Override
+    public boolean update(String topicId, double weaknessScore) {
+        Integer handle = handles.get(topicId);
+        if (handle == null) return false;
+        nodes[handle] = nodes[handle].withWeaknessScore(weaknessScore);
+        heap.update(handle, weaknessScore);
+        version++;
+        return true;
+    }
+    
+    /**
+     * Removes a topic wherever it is in the heap. Returns the removed node or null.
+     */
+    @Override
+    public HeapNode remove(String topicId) {
+        Integer handle = handles.get(topicId);
+        if (handle == null) return null;
+        heap.remove(handle);
+        return release(handle);
+    }
+    
+    @Override
     public HeapNode extractMax() {
         if (heap.isEmpty()) return null;
-        
-        HeapNode max = heap.get(0);
-        HeapNode last = heap.remove(heap.size() - 1);
-        
-        if (!heap.isEmpty()) {
-            heap.set(0, last);
-            heapifyDown(0);
-        }
-        
-        return max;
+        return release(heap.pop());
     }
     
+    public boolean contains(String topicId) {
+        return handles.containsKey(topicId);
+    }
+    
+    @Override
+    public HeapNode get(String topicId) {
+        Integer handle = handles.get(topicId);
+        return handle == null ? null : nodes[handle];
+    }
+    
+    @Override
     public HeapNode peekMax() {
-        return heap.isEmpty() ? null : heap.get(0);
+        return heap.isEmpty() ? null : nodes[heap.peek()];
     }
     
+    @Override
     public boolean isEmpty() {
         return heap.isEmpty();
     }
     
+    @Override
     public int size() {
         return heap.size();
     }
     
+    @Override
+    public long getVersion() {
+        return version;
+    }
+    
     /**
      * Get all nodes sorted by weakness (descending)
      */
+    @Override
     public List<HeapNode> getSortedNodes() {
-        List<HeapNode> sorted = new ArrayList<>(heap);
+        List<HeapNode> sorted = new ArrayList<>(heap.size());
+        for (int slot = 0; slot < heap.size(); slot++) {
+            sorted.add(nodes[heap.handleAt(slot)]);
+        }
         sorted.sort((a, b) -> Double.compare(b.getWeaknessScore(), a.getWeaknessScore()));
         return sorted;
     }
     
-    private void heapifyUp(int index) {
-        while (index > 0) {
-            int parent = (index - 1) / 2;
-            if (heap.get(index).getWeaknessScore() > heap.get(parent).getWeaknessScore()) {
-                swap(index, parent);
-                index = parent;
-            } else {
-                break;
-            }
+    /**
+     * The k weakest topics in priority order, without modifying the heap.
+     * O(k log k) regardless of heap size.
+     */
+    @Override
+    public List<HeapNode> topK(int k) {
+        List<HeapNode> top = new ArrayList<>(Math.min(k, heap.size()));
+        Iterator<HeapNode> it = sortedIterator();
+        while (top.size() < k && it.hasNext()) {
+            top.add(it.next());
         }
+        return top;
     }
     
-    private void heapifyDown(int index) {
-        int size = heap.size();
-        
-        while (true) {
-            int largest = index;
-            int left = 2 * index + 1;
-            int right = 2 * index + 2;
+    /**
+     * Lazily yields nodes in descending weakness without copying the heap.
+     * A small frontier heap walks the implicit heap tree: the next node is
+     * always the best frontier slot, and taking it exposes its two children.
+     * Fails fast if the heap is modified during iteration.
+     */
+    @Override
+    public Iterator<HeapNode> sortedIterator() {
+        return new Iterator<HeapNode>() {
+            private PrimitiveMaxHeap frontier = new PrimitiveMaxHeap();
+            private int[] slots = new int[16]; // frontier handle -> heap slot
+            private int count;
+            private long expectedVersion = version;
             
-            if (left < size && heap.get(left).getWeaknessScore() > heap.get(largest).getWeaknessScore()) {
-                largest = left;
+            {
+                if (!heap.isEmpty()) offer(0);
             }
-            if (right < size && heap.get(right).getWeaknessScore() > heap.get(largest).getWeaknessScore()) {
-                largest = right;
+            
+            @Override
+            public boolean hasNext() {
+                return !frontier.isEmpty();
             }
             
-            if (largest != index) {
-                swap(index, largest);
-                index = largest;
-            } else {
-                break;
+            @Override
+            public HeapNode next() {
+                if (expectedVersion != version) throw new ConcurrentModificationException();
+                if (frontier.isEmpty()) throw new NoSuchElementException();
+                int slot = slots[frontier.pop()];
+                if (2 * slot + 1 < heap.size()) offer(2 * slot + 1);
+                if (2 * slot + 2 < heap.size()) offer(2 * slot + 2);
+                return nodes[heap.handleAt(slot)];
             }
+            
+            private void offer(int slot) {
+                if (count == slots.length) slots = Arrays.copyOf(slots, count * 2);
+                slots[count] = slot;
+                frontier.push(count++, heap.keyAt(slot));
+            }
+        };
+    }
+    
+    private int allocate(HeapNode node) {
+        int handle;
+        if (freeCount > 0) {
+            handle = freeHandles[--freeCount];
+        } else {
+            handle = nextHandle++;
+            if (handle == nodes.length) nodes = Arrays.copyOf(nodes, handle * 2);
         }
+        nodes[handle] = node;
+        return handle;
     }
     
-    private void swap(int i, int j) {
-        HeapNode temp = heap.get(i);
-        heap.set(i, heap.get(j));
-        heap.set(j, temp);
+    private HeapNode release(int handle) {
+        HeapNode node = nodes[handle];
+        nodes[handle] = null;
+        handles.remove(node.getTopicId());
+        if (freeCount == freeHandles.length) freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+        freeHandles[freeCount++] = handle;
+        version++;
+        return node;
     }
-}
\ No newline at end of file
+}
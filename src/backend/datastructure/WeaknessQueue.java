@@ -0,0 +1,45 @@
+package backend.datastructure;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Priority queue of weak topics as used by StudyPlannerService.
+ * At most one entry per topicId; higher weakness score = higher priority.
+ */
+public interface WeaknessQueue {
+    /**
+     * Upsert: replaces the entry of a topic that is already queued.
+     */
+    void insert(WeaknessHeap.HeapNode node);
+    
+    WeaknessHeap.HeapNode extractMax();
+    
+    WeaknessHeap.HeapNode peekMax();
+    
+    WeaknessHeap.HeapNode get(String topicId);
+    
+    boolean update(String topicId, double weaknessScore);
+    
+    WeaknessHeap.HeapNode remove(String topicId);
+    
+    boolean isEmpty();
+    
+    int size();
+    
+    /**
+     * Changes whenever the queue content changes.
+     */
+    long getVersion();
+    
+    List<WeaknessHeap.HeapNode> getSortedNodes();
+    
+    List<WeaknessHeap.HeapNode> topK(int k);
+    
+    /**
+     * Nodes in descending priority; implementations may yield them lazily.
+     */
+    default Iterator<WeaknessHeap.HeapNode> sortedIterator() {
+        return getSortedNodes().iterator();
+    }
+}
@@ -0,0 +1,181 @@
+package backend.io;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Minimal streaming JSON tokenizer: the caller pulls one token at a time,
+ * so memory use is bounded by the read buffer and the longest string.
+ * A string directly followed by ':' is reported as a NAME.
+ */
+public class JsonPullParser {
+    public enum Token {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY,
+        NAME, STRING, NUMBER, TRUE, FALSE, NULL, END_DOCUMENT
+    }
+    
+    private static final int BUFFER_SIZE = 1 << 13;
+    
+    private Reader reader;
+    private char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private int line = 1;
+    
+    private StringBuilder text = new StringBuilder();
+    private double number;
+    
+    public JsonPullParser(Reader reader) {
+        this.reader = reader;
+    }
+    
+    public Token next() throws IOException {
+        int c = skipSeparators();
+        switch (c) {
+            case -1: return Token.END_DOCUMENT;
+            case '{': pos++; return Token.START_OBJECT;
+            case '}': pos++; return Token.END_OBJECT;
+            case '[': pos++; return Token.START_ARRAY;
+            case ']': pos++; return Token.END_ARRAY;
+            case '"':
+                pos++;
+                readString();
+                if (skipWhitespace() == ':') {
+                    pos++;
+                    return Token.NAME;
+                }
+                return Token.STRING;
+            case 't': expectWord("true"); return Token.TRUE;
+            case 'f': expectWord("false"); return Token.FALSE;
+            case 'n': expectWord("null"); return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    readNumber();
+                    return Token.NUMBER;
+                }
+                throw error("Unexpected character '" + (char) c + "'");
+        }
+    }
+    
+    /**
+     * Text of the last NAME or STRING (or NUMBER, as written)
+     */
+    public String getString() { return text.toString(); }
+    
+    public double getNumber() { return number; }
+    
+    public int getLine() { return line; }
+    
+    /**
+     * Skips the value that starts with the given token, nested values included
+     */
+    public void skipValue(Token first) throws IOException {
+        int depth = 0;
+        Token token = first;
+        while (true) {
+            if (token == Token.START_OBJECT || token == Token.START_ARRAY) depth++;
+            else if (token == Token.END_OBJECT || token == Token.END_ARRAY) depth--;
+            else if (token == Token.END_DOCUMENT) throw error("Unexpected end of document");
+            if (depth == 0 && token != Token.NAME) return;
+            token = next();
+        }
+    }
+    
+    public IOException error(String message) {
+        return new IOException("JSON line " + line + ": " + message);
+    }
+    
+    /**
+     * Commas are implied by the token order, so they are skipped like whitespace
+     */
+    private int skipSeparators() throws IOException {
+        while (true) {
+            int c = skipWhitespace();
+            if (c != ',') return c;
+            pos++;
+        }
+    }
+    
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) return -1;
+            char c = buffer[pos];
+            if (c == '\n') line++;
+            else if (c != ' ' && c != '\t' && c != '\r') return c;
+            pos++;
+        }
+    }
+    
+    private boolean fill() throws IOException {
+        limit = reader.read(buffer, 0, buffer.length);
+        pos = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+    
+    private int read() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buffer[pos++];
+    }
+    
+    private void readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == -1 || c == '\n') throw error("Unterminated string");
+            if (c == '"') return;
+            if (c != '\\') {
+                text.append((char) c);
+                continue;
+            }
+            int escaped = read();
+            switch (escaped) {
+                case '"': case '\\': case '/': text.append((char) escaped); break;
+                case 'b': text.append('\b'); break;
+                case 'f': text.append('\f'); break;
+                case 'n': text.append('\n'); break;
+                case 'r': text.append('\r'); break;
+                case 't': text.append('\t'); break;
+                case 'u': {
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0) throw error("Bad \\u escape");
+                        code = code * 16 + digit;
+                    }
+                    text.append((char) code);
+                    break;
+                }
+                default: throw error("Bad escape");
+            }
+        }
+    }
+    
+    private void readNumber() throws IOException {
+        text.setLength(0);
+        while (true) {
+            if (pos == limit && !fill()) break;
+            char c = buffer[pos];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                text.append(c);
+                pos++;
+            } else {
+                break;
+            }
+        }
+        try {
+            number = Double.parseDouble(text.toString());
+        } catch (NumberFormatException e) {
+            throw error("Bad number " + text);
+        }
+    }
+    
+    private void expectWord(String word) throws IOException {
+        for (int i = 0; i < word.length(); i++) {
+            if (read() != word.charAt(i)) throw error("Expected " + word);
+        }
+    }
+}
@@ -0,0 +1,728 @@
+package backend.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import backend.model.Prerequisite;
+import backend.model.Subject;
+import backend.model.Topic;
+import backend.service.MutationListener;
+import backend.service.StudyPlannerService;
+
+/**
+ * Append-only write-ahead journal of StudyPlannerService mutations.
+ *
+ * Records go to numbered segment files (journal-&lt;generation&gt;.log), each
+ * starting with a magic number and format version. A record is
+ * [payload length][CRC32 of payload][payload], the payload being an opcode
+ * and its arguments, strings as a byte count and UTF-8.
+ *
+ * A mutation returns only once its record is on disk. A writer task drains
+ * whatever has queued up, writes it in one go and fsyncs once for the whole
+ * batch (group commit), so concurrent callers share the fsync but each still
+ * waits for it. The task runs one batch at a time on an executor, which many
+ * journals may share. Inside batchStarted/batchFinished a thread waits once,
+ * at the end, for the last record it appended.
+ */
+public class MutationJournal implements MutationListener, AutoCloseable {
+    private static final byte ADD_SUBJECT = 1;
+    private static final byte ADD_PREREQUISITE = 2;
+    private static final byte ADD_PREREQUISITES = 3;
+    private static final byte ADD_SYLLABUS_TOPIC = 4;
+    private static final byte TOGGLE_TOPIC = 5;
+    private static final byte ADD_WEAKNESS = 6;
+    private static final byte REMOVE_WEAKNESS = 7;
+    private static final byte RESCHEDULE_WEAKNESS = 8;
+    private static final byte UPDATE_SUBJECT = 9;
+    private static final byte ADD_SYLLABUS_CHUNK = 10;
+    private static final byte OPEN_CATALOGUE = 11;
+    private static final byte SYLLABUS_LOADED = 12;
+    
+    private static final int SEGMENT_MAGIC = 0x53504A4C; // "SPJL"
+    private static final int SEGMENT_VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int CHUNK_BYTES = 1 << 16; // a syllabus load is journaled in pieces of about this size
+    private static final int MAX_CHUNKS_IN_FLIGHT = 4;
+    
+    /**
+     * Queued work for the writer task
+     */
+    private static class Entry {
+        static final int RECORD = 0, ROTATE = 1, SYNC = 2, CLOSE = 3;
+        
+        final int kind;
+        final byte[] payload;
+        final long generation;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        
+        Entry(int kind, byte[] payload, long generation) {
+            this.kind = kind;
+            this.payload = payload;
+            this.generation = generation;
+        }
+    }
+    
+    /**
+     * A thread's open batchStarted nesting and the last record it appended
+     */
+    private static class Batch {
+        int depth;
+        CompletableFuture<Void> last;
+    }
+    
+    private Path directory;
+    private BlockingQueue<Entry> queue;
+    private ExecutorService writers;
+    private boolean ownsWriters;
+    private AtomicBoolean scheduled; // a writer task is queued or running
+    private volatile IOException failure;
+    private boolean closed;
+    
+    // Writer-side state, touched by one writer task at a time
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private CRC32 crc;
+    private boolean stopped;
+    
+    // Appender-side view of the current segment
+    private long generation;
+    private long segmentBytes;
+    private long sizeThreshold = Long.MAX_VALUE;
+    private Runnable onThresholdExceeded;
+    private final ThreadLocal<Batch> batches = new ThreadLocal<>();
+    
+    /**
+     * Appends to segment generation (created if missing) from now on
+     */
+    public MutationJournal(Path directory, long generation) throws IOException {
+        this(directory, generation, null);
+    }
+    
+    /**
+     * Writes on the given executor (shared by many journals, and left running
+     * on close) instead of a thread of its own. It must not also run tasks
+     * that wait on a journal, such as snapshot compaction.
+     */
+    public MutationJournal(Path directory, long generation, ExecutorService writers) throws IOException {
+        this.directory = directory;
+        this.generation = generation;
+        this.queue = new LinkedBlockingQueue<>();
+        this.scheduled = new AtomicBoolean();
+        Files.createDirectories(directory);
+        this.channel = openSegment(generation);
+        this.segmentBytes = channel.size();
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.crc = new CRC32();
+        if (writers == null) {
+            ownsWriters = true;
+            writers = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "journal-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.writers = writers;
+    }
+    
+    public synchronized long getGeneration() { return generation; }
+    
+    /**
+     * Runs onExceeded on the appending thread after any append that leaves
+     * the current segment larger than bytes (typically to start a compaction)
+     */
+    public synchronized void setSizeThreshold(long bytes, Runnable onExceeded) {
+        this.sizeThreshold = bytes;
+        this.onThresholdExceeded = onExceeded;
+    }
+    
+    /**
+     * Bytes appended to the current segment, including ones not yet on disk
+     */
+    public synchronized long getSegmentBytes() { return segmentBytes; }
+    
+    /**
+     * Starts segment generation + 1 for all later records. The future completes
+     * once the writer has closed the previous segment.
+     */
+    public synchronized CompletableFuture<Void> rotate() {
+        checkOpen();
+        generation++;
+        segmentBytes = SEGMENT_HEADER_BYTES;
+        return enqueue(new Entry(Entry.ROTATE, null, generation));
+    }
+    
+    /**
+     * Completes once every record appended so far is on disk
+     */
+    public synchronized CompletableFuture<Void> sync() {
+        checkOpen();
+        return enqueue(new Entry(Entry.SYNC, null, generation));
+    }
+    
+    /**
+     * Flushes outstanding records and closes the segment
+     */
+    @Override
+    public void close() throws IOException {
+        CompletableFuture<Void> done;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            done = enqueue(new Entry(Entry.CLOSE, null, generation));
+        }
+        try {
+            done.join();
+        } catch (RuntimeException e) {
+            // failure is rethrown below
+        }
+        if (ownsWriters) writers.shutdown();
+        if (failure != null) throw failure;
+    }
+    
+    /**
+     * Removes segments older than generation once a snapshot covers them
+     */
+    public void deleteSegmentsBefore(long generation) throws IOException {
+        for (long g : segments(directory)) {
+            if (g < generation) Files.deleteIfExists(segmentPath(directory, g));
+        }
+    }
+    
+    // MutationListener
+    
+    @Override
+    public void subjectAdded(String id, String name, double score, int x, int y) {
+        append(ADD_SUBJECT, out -> {
+            writeString(out, id);
+            writeString(out, name);
+            out.writeDouble(score);
+            out.writeInt(x);
+            out.writeInt(y);
+        });
+    }
+    
+    @Override
+    public void subjectUpdated(String id, double score, double effort) {
+        append(UPDATE_SUBJECT, out -> {
+            writeString(out, id);
+            out.writeDouble(score);
+            out.writeDouble(effort);
+        });
+    }
+    
+    @Override
+    public void prerequisiteAdded(String subjectId, String prereqId) {
+        append(ADD_PREREQUISITE, out -> {
+            writeString(out, subjectId);
+            writeString(out, prereqId);
+        });
+    }
+    
+    @Override
+    public void prerequisitesAdded(List<Prerequisite> edges) {
+        append(ADD_PREREQUISITES, out -> {
+            out.writeInt(edges.size());
+            for (Prerequisite edge : edges) {
+                writeString(out, edge.getSubjectId());
+                writeString(out, edge.getPrerequisiteId());
+            }
+        });
+    }
+    
+    @Override
+    public void syllabusTopicAdded(String parentId, String topicId, String title) {
+        append(ADD_SYLLABUS_TOPIC, out -> {
+            writeString(out, parentId);
+            writeString(out, topicId);
+            writeString(out, title);
+        });
+    }
+    
+    /**
+     * (parent id, id, title) of every new topic in pre-order, in chunk records
+     * of about CHUNK_BYTES with only a few queued at a time, then a
+     * SYLLABUS_LOADED record. Replay applies the chunks only if that commit
+     * record made it to disk, and no compaction starts before it, so all
+     * chunks of a load end up in one segment.
+     */
+    @Override
+    public void syllabusSubtreesAdded(List<Topic> subtrees) {
+        Deque<CompletableFuture<Void>> inFlight = new ArrayDeque<>();
+        Deque<Topic> pending = new ArrayDeque<>();
+        try {
+            ChunkWriter chunk = new ChunkWriter();
+            for (Topic subtree : subtrees) {
+                pending.push(subtree);
+                while (!pending.isEmpty()) {
+                    Topic topic = pending.pop();
+                    chunk.add(topic.getParent().getId(), topic.getId(), topic.getTitle());
+                    if (chunk.size() >= CHUNK_BYTES) {
+                        inFlight.add(enqueueRecord(chunk.finish(), false));
+                        if (inFlight.size() > MAX_CHUNKS_IN_FLIGHT) await(inFlight.poll());
+                    }
+                    List<Topic> children = topic.getChildren();
+                    for (ListIterator<Topic> it = children.listIterator(children.size()); it.hasPrevious();) {
+                        pending.push(it.previous());
+                    }
+                }
+            }
+            if (chunk.count > 0) enqueueRecord(chunk.finish(), false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream
+        }
+        append(SYLLABUS_LOADED, out -> {}); // the writer keeps order, so this waits for every chunk
+    }
+    
+    /**
+     * Builds one ADD_SYLLABUS_CHUNK payload: opcode, topic count, triples
+     */
+    private static class ChunkWriter {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(CHUNK_BYTES + 1024);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count;
+        
+        ChunkWriter() throws IOException {
+            start();
+        }
+        
+        private void start() throws IOException {
+            out.writeByte(ADD_SYLLABUS_CHUNK);
+            out.writeInt(0); // count, filled in by finish
+            count = 0;
+        }
+        
+        void add(String parentId, String topicId, String title) throws IOException {
+            writeString(out, parentId);
+            writeString(out, topicId);
+            writeString(out, title);
+            count++;
+        }
+        
+        int size() { return bytes.size(); }
+        
+        byte[] finish() throws IOException {
+            out.flush();
+            byte[] payload = bytes.toByteArray();
+            ByteBuffer.wrap(payload, 1, 4).putInt(count);
+            bytes.reset();
+            start();
+            return payload;
+        }
+    }
+    
+    @Override
+    public void syllabusCatalogueOpened(String file, int maxResident) {
+        append(OPEN_CATALOGUE, out -> {
+            writeString(out, file);
+            out.writeInt(maxResident);
+        });
+    }
+    
+    @Override
+    public void topicToggled(String topicId) {
+        append(TOGGLE_TOPIC, out -> writeString(out, topicId));
+    }
+    
+    @Override
+    public void weaknessAdded(String topicId, String topicName, double weakness, String subjectId) {
+        append(ADD_WEAKNESS, out -> {
+            writeString(out, topicId);
+            writeString(out, topicName);
+            out.writeDouble(weakness);
+            out.writeBoolean(subjectId != null);
+            if (subjectId != null) writeString(out, subjectId);
+        });
+    }
+    
+    @Override
+    public void weaknessRemoved(String topicId) {
+        append(REMOVE_WEAKNESS, out -> writeString(out, topicId));
+    }
+    
+    @Override
+    public void weaknessRescheduled(String topicId, double base, long lastStudied) {
+        append(RESCHEDULE_WEAKNESS, out -> {
+            writeString(out, topicId);
+            out.writeDouble(base);
+            out.writeLong(lastStudied);
+        });
+    }
+    
+    @Override
+    public void batchStarted() {
+        Batch batch = batches.get();
+        if (batch == null) batches.set(batch = new Batch());
+        batch.depth++;
+    }
+    
+    @Override
+    public void batchFinished() {
+        Batch batch = batches.get();
+        if (batch == null || --batch.depth > 0) return;
+        batches.remove();
+        if (batch.last != null) await(batch.last);
+    }
+    
+    private interface RecordBody {
+        void write(DataOutputStream out) throws IOException;
+    }
+    
+    private void append(byte op, RecordBody body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(op);
+            body.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream
+        }
+        CompletableFuture<Void> written = enqueueRecord(bytes.toByteArray(), true);
+        
+        Batch batch = batches.get();
+        if (batch != null) {
+            batch.last = written;
+        } else {
+            await(written);
+        }
+    }
+    
+    /**
+     * Queues a record without waiting for it; mayCompact false holds back the
+     * size threshold callback (a later record will run it)
+     */
+    private CompletableFuture<Void> enqueueRecord(byte[] payload, boolean mayCompact) {
+        Runnable exceeded = null;
+        CompletableFuture<Void> written;
+        synchronized (this) {
+            checkOpen();
+            segmentBytes += HEADER_BYTES + payload.length;
+            written = enqueue(new Entry(Entry.RECORD, payload, generation));
+            if (mayCompact && segmentBytes > sizeThreshold) exceeded = onThresholdExceeded;
+        }
+        if (exceeded != null) exceeded.run();
+        return written;
+    }
+    
+    /**
+     * Blocks until the writer has synced the record (or failed to)
+     */
+    private static void await(CompletableFuture<Void> written) {
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException("Journal write failed", (IOException) e.getCause());
+            }
+            throw e;
+        }
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+    
+    private CompletableFuture<Void> enqueue(Entry entry) {
+        queue.add(entry);
+        if (scheduled.compareAndSet(false, true)) writers.execute(this::writeBatch);
+        return entry.done;
+    }
+    
+    private void checkOpen() {
+        if (failure != null) throw new UncheckedIOException("Journal write failed", failure);
+        if (closed) throw new IllegalStateException("Journal is closed");
+    }
+    
+    // Writer task
+    
+    /**
+     * Writes everything queued so far with one fsync, then gives the thread
+     * back to the other journals sharing it (rescheduling itself if more has
+     * arrived meanwhile)
+     */
+    private void writeBatch() {
+        List<Entry> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        if (stopped) {
+            // Anything queued after a failure can no longer be written
+            IOException cause = failure != null ? failure : new IOException("Journal closed");
+            for (Entry entry : batch) entry.done.completeExceptionally(cause);
+        } else {
+            try {
+                boolean closing = false;
+                for (Entry entry : batch) {
+                    if (entry.kind == Entry.RECORD) {
+                        if (buffer.remaining() < HEADER_BYTES + entry.payload.length) drain(channel, buffer);
+                        crc.reset();
+                        crc.update(entry.payload);
+                        buffer.putInt(entry.payload.length);
+                        buffer.putInt((int) crc.getValue());
+                        // A payload larger than the buffer goes through it in slices
+                        for (int offset = 0; offset < entry.payload.length;) {
+                            if (!buffer.hasRemaining()) drain(channel, buffer);
+                            int length = Math.min(buffer.remaining(), entry.payload.length - offset);
+                            buffer.put(entry.payload, offset, length);
+                            offset += length;
+                        }
+                    } else if (entry.kind == Entry.ROTATE) {
+                        drain(channel, buffer);
+                        channel.force(false);
+                        channel.close();
+                        channel = openSegment(entry.generation);
+                    } else if (entry.kind == Entry.CLOSE) {
+                        closing = true;
+                    }
+                }
+                drain(channel, buffer);
+                channel.force(false); // one fsync for the whole batch
+                if (closing) {
+                    stopped = true;
+                    channel.close();
+                }
+                for (Entry entry : batch) entry.done.complete(null);
+            } catch (IOException e) {
+                failure = e;
+                stopped = true;
+                try {
+                    channel.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                for (Entry entry : batch) entry.done.completeExceptionally(e);
+            }
+        }
+        scheduled.set(false);
+        if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) writers.execute(this::writeBatch);
+    }
+    
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+    
+    /**
+     * Opens for appending; a new segment gets its header straight away
+     */
+    private FileChannel openSegment(long generation) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(directory, generation),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+            header.putInt(SEGMENT_MAGIC).putInt(SEGMENT_VERSION).flip();
+            while (header.hasRemaining()) channel.write(header);
+        }
+        return channel;
+    }
+    
+    // Segments and replay
+    
+    static Path segmentPath(Path directory, long generation) {
+        return directory.resolve(SEGMENT_PREFIX + generation + SEGMENT_SUFFIX);
+    }
+    
+    /**
+     * Generations of the segments present, oldest first
+     */
+    public static List<Long> segments(Path directory) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return generations;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+    
+    /**
+     * Applies every record from segments at or after fromGeneration, in order.
+     * A record cut short or failing its checksum ends its segment (a crash
+     * mid-write); later segments are still applied. A record that does not
+     * fit the state before it (e.g. a topic whose parent is missing) fails the
+     * replay, naming its segment and position. Returns the number of records
+     * applied.
+     */
+    public static int replay(Path directory, long fromGeneration, StudyPlannerService service) throws IOException {
+        int applied = 0;
+        for (long g : segments(directory)) {
+            if (g < fromGeneration) continue;
+            try (FileChannel channel = FileChannel.open(segmentPath(directory, g), StandardOpenOption.READ)) {
+                ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (in.remaining() < SEGMENT_HEADER_BYTES) continue; // created, crashed before the header
+                if (in.getInt() != SEGMENT_MAGIC) throw new IOException("Journal segment " + g + " is not a journal");
+                int version = in.getInt();
+                if (version != SEGMENT_VERSION) {
+                    throw new IOException("Journal segment " + g + " has unsupported version " + version);
+                }
+                CRC32 crc = new CRC32();
+                int record = 0;
+                Boolean loadCommitted = null; // for the syllabus load under way, if any
+                byte[] payload;
+                while ((payload = nextRecord(in, crc)) != null) {
+                    if (payload[0] == ADD_SYLLABUS_CHUNK) {
+                        if (loadCommitted == null) loadCommitted = loadCommits(in.duplicate(), crc);
+                        if (!loadCommitted) { // cut short by a crash: the load never happened
+                            record++;
+                            continue;
+                        }
+                    } else if (payload[0] == SYLLABUS_LOADED) {
+                        loadCommitted = null;
+                    }
+                    try {
+                        apply(payload, service);
+                    } catch (IOException | RuntimeException e) {
+                        throw new IOException("Journal segment " + g + ", record " + record + ": " + e.getMessage(), e);
+                    }
+                    record++;
+                    applied++;
+                }
+            }
+        }
+        return applied;
+    }
+    
+    /**
+     * Payload of the next record, or null at the end of the segment or at a
+     * record that was cut short or fails its checksum
+     */
+    private static byte[] nextRecord(ByteBuffer in, CRC32 crc) {
+        if (in.remaining() < HEADER_BYTES) return null;
+        int length = in.getInt();
+        int checksum = in.getInt();
+        if (length < 1 || length > in.remaining()) return null;
+        byte[] payload = new byte[length];
+        in.get(payload);
+        crc.reset();
+        crc.update(payload);
+        return (int) crc.getValue() == checksum ? payload : null;
+    }
+    
+    /**
+     * Whether the SYLLABUS_LOADED record of the load being read follows
+     */
+    private static boolean loadCommits(ByteBuffer in, CRC32 crc) {
+        for (byte[] payload; (payload = nextRecord(in, crc)) != null;) {
+            if (payload[0] == SYLLABUS_LOADED) return true;
+        }
+        return false;
+    }
+    
+    private static void apply(byte[] payload, StudyPlannerService service) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        switch (op) {
+            case ADD_SUBJECT: {
+                String id = readString(in);
+                service.addSubject(id, readString(in), in.readDouble());
+                Subject subject = service.getGraph().getSubjects().get(id);
+                subject.setX(in.readInt()); // initial positions are random
+                subject.setY(in.readInt());
+                break;
+            }
+            case UPDATE_SUBJECT: {
+                String id = readString(in);
+                Subject subject = service.getGraph().getSubjects().get(id);
+                if (subject == null) throw new IOException("update of missing subject " + id);
+                subject.setScore(in.readDouble());
+                subject.setEffort(in.readDouble());
+                break;
+            }
+            case ADD_PREREQUISITE:
+                service.addPrerequisite(readString(in), readString(in));
+                break;
+            case ADD_PREREQUISITES: {
+                int count = in.readInt();
+                List<Prerequisite> edges = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) edges.add(new Prerequisite(readString(in), readString(in)));
+                service.addPrerequisites(edges);
+                break;
+            }
+            case ADD_SYLLABUS_TOPIC:
+                addTopic(service, readString(in), readString(in), readString(in));
+                break;
+            case ADD_SYLLABUS_CHUNK: {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) addTopic(service, readString(in), readString(in), readString(in));
+                break;
+            }
+            case SYLLABUS_LOADED:
+                break; // commits the chunks before it
+            case OPEN_CATALOGUE:
+                service.openSyllabusCatalogue(Path.of(readString(in)), in.readInt());
+                break;
+            case TOGGLE_TOPIC: {
+                String topicId = readString(in);
+                if (!service.getSyllabusTree().containsTopic(topicId)) {
+                    throw new IOException("toggle of missing topic " + topicId);
+                }
+                service.toggleTopicCompletion(topicId);
+                break;
+            }
+            case ADD_WEAKNESS: {
+                String topicId = readString(in);
+                String topicName = readString(in);
+                double weakness = in.readDouble();
+                String subjectId = in.readBoolean() ? readString(in) : null;
+                Subject subject = subjectId == null ? null : service.getGraph().getSubjects().get(subjectId);
+                service.addWeaknessNode(topicId, topicName, weakness, subjectId, subject);
+                break;
+            }
+            case REMOVE_WEAKNESS:
+                service.removeWeakness(readString(in));
+                break;
+            case RESCHEDULE_WEAKNESS:
+                service.rescheduleWeakness(readString(in), in.readDouble(), in.readLong());
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + op);
+        }
+    }
+    
+    private static void addTopic(StudyPlannerService service, String parentId, String topicId, String title)
+            throws IOException {
+        if (!service.getSyllabusTree().containsTopic(parentId)) {
+            throw new IOException("parent " + parentId + " of topic " + topicId + " is missing");
+        }
+        service.addSyllabusTopic(parentId, topicId, title);
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) throw new IOException("string length " + length + " out of range");
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
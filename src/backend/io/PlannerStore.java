@@ -0,0 +1,204 @@
+package backend.io;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import backend.service.StudyPlannerService;
+
+/**
+ * Durable home for one planner: a snapshot plus a journal of the edits made since.
+ *
+ * Opening loads the snapshot and replays the journal segments it does not cover.
+ * Once the live segment outgrows the compaction threshold the journal rotates,
+ * the state is encoded on the mutating thread, and a background thread writes
+ * the new snapshot and deletes the segments it now covers. A crash at any point
+ * leaves an older snapshot whose journal segments are all still present.
+ */
+public class PlannerStore implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(PlannerStore.class.getName());
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 4L << 20;
+    private static final String SNAPSHOT_FILE = "planner.snapshot";
+    
+    private Path directory;
+    private long compactionThreshold;
+    private SnapshotStore snapshots;
+    private MutationJournal journal;
+    private StudyPlannerService service;
+    private ExecutorService compactor;
+    private boolean ownsCompactor;
+    private ExecutorService journalWriters; // null: the journal runs its own writer
+    private AtomicBoolean compacting;
+    private volatile Future<?> pending; // last compaction handed to the compactor
+    private boolean restored;
+    private volatile Consumer<Exception> onBackgroundFailure;
+    
+    public PlannerStore(Path directory) {
+        this(directory, DEFAULT_COMPACTION_THRESHOLD);
+    }
+    
+    public PlannerStore(Path directory, long compactionThreshold) {
+        this(directory, compactionThreshold, null);
+    }
+    
+    /**
+     * Writes snapshots on the given executor (shared by many stores, and left
+     * running on close) instead of a thread of its own
+     */
+    public PlannerStore(Path directory, long compactionThreshold, ExecutorService compactor) {
+        this(directory, compactionThreshold, compactor, null);
+    }
+    
+    /**
+     * Also writes the journal on a shared executor (see MutationJournal); it
+     * must be a different one from the compactor
+     */
+    public PlannerStore(Path directory, long compactionThreshold, ExecutorService compactor,
+                        ExecutorService journalWriters) {
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold;
+        this.snapshots = new SnapshotStore(directory.resolve(SNAPSHOT_FILE));
+        this.compacting = new AtomicBoolean();
+        this.compactor = compactor;
+        this.journalWriters = journalWriters;
+    }
+    
+    /**
+     * Rebuilds the saved state and starts journaling every later mutation
+     */
+    public StudyPlannerService open() throws IOException {
+        return open(new StudyPlannerService());
+    }
+    
+    /**
+     * Same, restoring into the given fresh service (e.g. one forked from a
+     * shared curriculum)
+     */
+    public StudyPlannerService open(StudyPlannerService fresh) throws IOException {
+        service = fresh;
+        long generation = 0;
+        if (snapshots.exists()) {
+            generation = snapshots.loadInto(service);
+            restored = true;
+        }
+        if (MutationJournal.replay(directory, generation, service) > 0) {
+            restored = true;
+        }
+        
+        // Never append after a possibly torn tail: start a fresh segment
+        long next = generation;
+        for (long g : MutationJournal.segments(directory)) next = Math.max(next, g + 1);
+        journal = new MutationJournal(directory, next, journalWriters);
+        journal.setSizeThreshold(compactionThreshold, this::compactInBackground);
+        service.setMutationListener(journal);
+        
+        if (compactor == null) {
+            ownsCompactor = true;
+            compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "snapshot-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return service;
+    }
+    
+    /**
+     * Whether open() found a snapshot or journal to restore
+     */
+    public boolean isRestored() { return restored; }
+    
+    public StudyPlannerService getService() { return service; }
+    
+    /**
+     * Told (on the mutating or the compactor thread) when a compaction started
+     * by the size threshold fails. Nothing is lost: the journal keeps every
+     * edit and the next threshold crossing tries again. Failures are logged
+     * either way.
+     */
+    public void setBackgroundFailureHandler(Consumer<Exception> handler) { this.onBackgroundFailure = handler; }
+    
+    /**
+     * Folds the journal into a new snapshot; call it on the thread that mutates
+     * the service. Does nothing if a compaction is already running.
+     */
+    public Future<?> compact() throws IOException {
+        return compact(false);
+    }
+    
+    private Future<?> compact(boolean background) throws IOException {
+        if (!compacting.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long generation;
+        byte[] snapshot;
+        CompletableFuture<Void> rotated;
+        try {
+            rotated = journal.rotate();
+            generation = journal.getGeneration();
+            snapshot = snapshots.encode(service, generation);
+        } catch (IOException | RuntimeException e) {
+            compacting.set(false);
+            throw e;
+        }
+        return pending = compactor.submit(() -> {
+            try {
+                rotated.join(); // the covered segments must be closed before they go
+                snapshots.write(snapshot);
+                journal.deleteSegmentsBefore(generation);
+            } catch (IOException | RuntimeException e) {
+                if (background) backgroundFailed(e);
+                throw e;
+            } finally {
+                compacting.set(false);
+            }
+            return null;
+        });
+    }
+    
+    private void compactInBackground() {
+        try {
+            compact(true);
+        } catch (IOException | RuntimeException e) {
+            backgroundFailed(e);
+        }
+    }
+    
+    private void backgroundFailed(Exception e) {
+        LOG.log(Level.WARNING, "Compacting " + directory + " failed; the journal still holds every edit", e);
+        Consumer<Exception> handler = onBackgroundFailure;
+        if (handler != null) handler.accept(e);
+    }
+    
+    /**
+     * Waits for any running compaction, writes a final snapshot so the next
+     * start needs no replay, and stops the journal
+     */
+    @Override
+    public void close() throws IOException {
+        if (journal == null) return;
+        try {
+            Future<?> running = pending;
+            if (running != null) running.get();
+            compact().get();
+        } catch (ExecutionException e) {
+            throw new IOException("Final snapshot failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while saving", e);
+        } finally {
+            service.setMutationListener(null);
+            if (ownsCompactor) compactor.shutdown();
+            journal.close();
+            journal = null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package backend.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+import backend.datastructure.WeaknessHeap;
+import backend.model.Subject;
+import backend.service.StudyPlannerService;
+
+/**
+ * Writes the study path and the weakness ranking as CSV or JSON (by file
+ * extension), one record at a time. The ranking is read through the queue's
+ * sorted iterator, so it is never sorted or copied as a whole.
+ *
+ * RegistrarImporter reads CSV one line per record, so a value with a line
+ * break cannot be exported as CSV. In JSON, non-finite numbers are written
+ * as null.
+ */
+public class RegistrarExporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    private StudyPlannerService service;
+    
+    public RegistrarExporter(StudyPlannerService service) {
+        this.service = service;
+    }
+    
+    /**
+     * position, id, name, score in topological order; returns the record count
+     */
+    public int exportStudyPath(Path file) throws IOException {
+        boolean json = isJson(file);
+        int count = 0;
+        try (Writer out = open(file)) {
+            out.write(json ? "[\n" : "position,id,name,score\n");
+            for (Subject subject : service.getStudyPath()) {
+                count++;
+                if (json) {
+                    if (count > 1) out.write(",\n");
+                    out.write("{\"position\":" + count + ",\"id\":" + jsonString(subject.getId())
+                        + ",\"name\":" + jsonString(subject.getName()) + ",\"score\":" + jsonNumber(subject.getScore()) + "}");
+                } else {
+                    out.write(count + "," + csvField(subject.getId()) + "," + csvField(subject.getName())
+                        + "," + subject.getScore() + "\n");
+                }
+            }
+            if (json) out.write("\n]\n");
+        }
+        return count;
+    }
+    
+    /**
+     * rank, topicId, topicName, weakness, subjectId from weakest down; returns the record count
+     */
+    public int exportWeaknesses(Path file) throws IOException {
+        boolean json = isJson(file);
+        int count = 0;
+        try (Writer out = open(file)) {
+            out.write(json ? "[\n" : "rank,topicId,topicName,weakness,subjectId\n");
+            for (Iterator<WeaknessHeap.HeapNode> it = service.getWeaknessHeap().sortedIterator(); it.hasNext();) {
+                WeaknessHeap.HeapNode node = it.next();
+                String subjectId = node.getSubjectId();
+                count++;
+                if (json) {
+                    if (count > 1) out.write(",\n");
+                    out.write("{\"rank\":" + count + ",\"topicId\":" + jsonString(node.getTopicId())
+                        + ",\"topicName\":" + jsonString(node.getTopicName())
+                        + ",\"weakness\":" + jsonNumber(node.getWeaknessScore())
+                        + ",\"subjectId\":" + (subjectId == null ? "null" : jsonString(subjectId)) + "}");
+                } else {
+                    out.write(count + "," + csvField(node.getTopicId()) + "," + csvField(node.getTopicName())
+                        + "," + node.getWeaknessScore() + "," + (subjectId == null ? "" : csvField(subjectId)) + "\n");
+                }
+            }
+            if (json) out.write("\n]\n");
+        }
+        return count;
+    }
+    
+    private static boolean isJson(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".json");
+    }
+    
+    private static Writer open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+    }
+    
+    static String csvField(String value) throws IOException {
+        if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            throw new IOException("Cannot write a line break to CSV: " + jsonString(value));
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+    
+    static String jsonNumber(double value) {
+        return Double.isFinite(value) ? Double.toString(value) : "null";
+    }
+    
+    static String jsonString(String value) {
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+}
@@ -0,0 +1,266 @@
+package backend.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import backend.datastructure.CyclicDependencyException;
+import backend.model.Prerequisite;
+import backend.model.Subject;
+import backend.service.StudyPlannerService;
+
+/**
+ * Streams registrar dumps into a StudyPlannerService record by record.
+ *
+ * CSV: one record type per file, columns as in RecordType (a header row naming
+ *      them may reorder them).
+ * JSON: {"subjects": [{"id", "name", "score"}...], "grades": [{"subjectId", "score"}...],
+ *        "prerequisites": [{"subjectId", "prerequisiteId"}...]}, sections in any order.
+ *
+ * Subjects go through addSubject, so weak ones are queued by its score < 75 rule;
+ * grades re-score existing subjects through setSubjectScore; prerequisites are
+ * applied in batches, each one all-or-nothing with a single cycle check. A batch
+ * that would close a cycle is rejected as a whole and the import goes on; its
+ * edges are counted as rejected and the loop is reported. Grade and
+ * prerequisite rows naming a subject not seen yet are held until the end of
+ * the input, so JSON sections may come in any order. Records whose subjects
+ * never appear are skipped and counted.
+ */
+public class RegistrarImporter {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    public enum RecordType {
+        SUBJECTS("subjects", "id", "name", "score"),
+        GRADES("grades", "subjectId", "score"),
+        PREREQUISITES("prerequisites", "subjectId", "prerequisiteId");
+        
+        private final String section;
+        private final String[] fields;
+        
+        RecordType(String section, String... fields) {
+            this.section = section;
+            this.fields = fields;
+        }
+    }
+    
+    /**
+     * prerequisites counts edges actually added (not duplicates); cycles holds
+     * the loop found in each rejected batch
+     */
+    public record Summary(int subjects, int grades, int prerequisites, int rejected, int skipped,
+                          List<List<String>> cycles) {}
+    
+    private record Grade(String subjectId, double score) {}
+    
+    private StudyPlannerService service;
+    private int batchSize;
+    
+    // Progress of the current import
+    private List<Prerequisite> pendingEdges;
+    private List<Prerequisite> deferredEdges; // subjects not seen yet
+    private List<Grade> deferredGrades; // subject not seen yet
+    private int subjects, grades, prerequisites, rejected, skipped;
+    private List<List<String>> cycles;
+    
+    public RegistrarImporter(StudyPlannerService service) {
+        this(service, DEFAULT_BATCH_SIZE);
+    }
+    
+    public RegistrarImporter(StudyPlannerService service, int batchSize) {
+        this.service = service;
+        this.batchSize = Math.max(1, batchSize);
+    }
+    
+    public Summary importCsv(Path file, RecordType type) throws IOException {
+        begin();
+        service.beginBatch(); // the whole import waits for the journal once
+        try (BufferedReader reader = open(file)) {
+            int[] columns = null; // field -> column
+            int lineNo = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                List<String> cells = SyllabusLoader.parseCsvLine(line, lineNo);
+                if (columns == null) {
+                    columns = headerColumns(type, cells);
+                    if (columns != null) continue;
+                    columns = new int[type.fields.length];
+                    for (int i = 0; i < columns.length; i++) columns[i] = i;
+                }
+                String[] values = new String[type.fields.length];
+                for (int i = 0; i < values.length; i++) {
+                    if (columns[i] >= cells.size()) {
+                        throw new IOException("Line " + lineNo + ": missing " + type.fields[i]);
+                    }
+                    values[i] = cells.get(columns[i]).trim();
+                }
+                accept(type, values, "Line " + lineNo);
+            }
+            return finish();
+        } finally {
+            service.endBatch();
+        }
+    }
+    
+    public Summary importJson(Path file) throws IOException {
+        begin();
+        service.beginBatch(); // the whole import waits for the journal once
+        try (BufferedReader reader = open(file)) {
+            JsonPullParser parser = new JsonPullParser(reader);
+            if (parser.next() != JsonPullParser.Token.START_OBJECT) throw parser.error("Expected an object");
+            JsonPullParser.Token token;
+            while ((token = parser.next()) == JsonPullParser.Token.NAME) {
+                RecordType type = sectionType(parser.getString());
+                JsonPullParser.Token value = parser.next();
+                if (type == null || value != JsonPullParser.Token.START_ARRAY) {
+                    parser.skipValue(value);
+                    continue;
+                }
+                readJsonRecords(parser, type);
+            }
+            if (token != JsonPullParser.Token.END_OBJECT) throw parser.error("Expected a section name");
+            return finish();
+        } finally {
+            service.endBatch();
+        }
+    }
+    
+    /**
+     * Reads the objects of one section array, one record at a time
+     */
+    private void readJsonRecords(JsonPullParser parser, RecordType type) throws IOException {
+        JsonPullParser.Token token;
+        while ((token = parser.next()) == JsonPullParser.Token.START_OBJECT) {
+            String[] values = new String[type.fields.length];
+            while ((token = parser.next()) == JsonPullParser.Token.NAME) {
+                int field = Arrays.asList(type.fields).indexOf(parser.getString());
+                JsonPullParser.Token value = parser.next();
+                if (field >= 0 && (value == JsonPullParser.Token.STRING || value == JsonPullParser.Token.NUMBER)) {
+                    values[field] = parser.getString();
+                } else {
+                    parser.skipValue(value);
+                }
+            }
+            if (token != JsonPullParser.Token.END_OBJECT) throw parser.error("Expected a field name");
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) throw parser.error("Missing " + type.fields[i]);
+            }
+            accept(type, values, "JSON line " + parser.getLine());
+        }
+        if (token != JsonPullParser.Token.END_ARRAY) throw parser.error("Expected a record object");
+    }
+    
+    private void accept(RecordType type, String[] values, String where) throws IOException {
+        Map<String, Subject> known = service.getGraph().getSubjects();
+        switch (type) {
+            case SUBJECTS:
+                service.addSubject(values[0], values[1], parseScore(values[2], where));
+                subjects++;
+                break;
+            case GRADES: {
+                double score = parseScore(values[1], where);
+                if (service.setSubjectScore(values[0], score)) {
+                    grades++;
+                } else {
+                    deferredGrades.add(new Grade(values[0], score));
+                }
+                break;
+            }
+            case PREREQUISITES:
+                if (!known.containsKey(values[0]) || !known.containsKey(values[1])) {
+                    deferredEdges.add(new Prerequisite(values[0], values[1]));
+                } else {
+                    addEdge(new Prerequisite(values[0], values[1]));
+                }
+                break;
+        }
+    }
+    
+    private void addEdge(Prerequisite edge) {
+        pendingEdges.add(edge);
+        if (pendingEdges.size() >= batchSize) flushEdges();
+    }
+    
+    private void flushEdges() {
+        if (pendingEdges.isEmpty()) return;
+        try {
+            prerequisites += service.addPrerequisites(pendingEdges);
+        } catch (CyclicDependencyException e) {
+            rejected += pendingEdges.size();
+            cycles.add(e.getCycle());
+        }
+        pendingEdges = new ArrayList<>(batchSize);
+    }
+    
+    private void begin() {
+        pendingEdges = new ArrayList<>(batchSize);
+        deferredEdges = new ArrayList<>();
+        deferredGrades = new ArrayList<>();
+        subjects = grades = prerequisites = rejected = skipped = 0;
+        cycles = new ArrayList<>();
+    }
+    
+    private Summary finish() {
+        for (Grade grade : deferredGrades) {
+            if (service.setSubjectScore(grade.subjectId(), grade.score())) {
+                grades++;
+            } else {
+                skipped++;
+            }
+        }
+        deferredGrades = null;
+        Map<String, Subject> known = service.getGraph().getSubjects();
+        for (Prerequisite edge : deferredEdges) {
+            if (known.containsKey(edge.getSubjectId()) && known.containsKey(edge.getPrerequisiteId())) {
+                addEdge(edge);
+            } else {
+                skipped++;
+            }
+        }
+        deferredEdges = null;
+        flushEdges();
+        return new Summary(subjects, grades, prerequisites, rejected, skipped, List.copyOf(cycles));
+    }
+    
+    private static BufferedReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        return new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE), BUFFER_SIZE);
+    }
+    
+    /**
+     * Column of each field if the row is a header naming them all, else null
+     */
+    private static int[] headerColumns(RecordType type, List<String> cells) {
+        int[] columns = new int[type.fields.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = -1;
+            for (int c = 0; c < cells.size(); c++) {
+                if (cells.get(c).trim().equalsIgnoreCase(type.fields[i])) columns[i] = c;
+            }
+            if (columns[i] < 0) return null;
+        }
+        return columns;
+    }
+    
+    private static RecordType sectionType(String name) {
+        for (RecordType type : RecordType.values()) {
+            if (type.section.equals(name)) return type;
+        }
+        return null;
+    }
+    
+    private static double parseScore(String value, String where) throws IOException {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IOException(where + ": bad score " + value);
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package backend.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import backend.datastructure.SpacedRepetitionQueue;
+import backend.datastructure.SubjectGraph;
+import backend.datastructure.SyllabusTree;
+import backend.datastructure.TopicTraversal;
+import backend.datastructure.WeaknessHeap;
+import backend.datastructure.WeaknessQueue;
+import backend.model.Prerequisite;
+import backend.model.Subject;
+import backend.model.Topic;
+import backend.service.StudyPlannerService;
+
+/**
+ * Compact binary snapshot of a StudyPlannerService.
+ *
+ * Layout (big-endian):
+ *   header    magic, format version, journal generation (long)
+ *   strings   count, then (byte length, UTF-8 bytes) each; everything else refers to them by index
+ *   subjects  count, then (id, name, score, x, y, effort) in study-path order
+ *   edges     count, then (prerequisite, dependent) as subject indices
+ *   syllabus  catalogue path, or -1 for a syllabus held in memory; then
+ *             in memory: count, then (id, title, completed, child count) in pre-order, root first
+ *             catalogue: resident budget, count, then (parent id, id, title, completed)
+ *             in pre-order for topics added on top of it, then count, then
+ *             (id, completed) for topics toggled since it was opened
+ *   heap      count, then (topic id, topic name, weakness, subject id or -1,
+ *             review schedule: base weakness and last studied (ms), NaN and
+ *             Long.MIN_VALUE for queues without schedules)
+ *
+ * Saving writes a temporary file through a FileChannel and renames it over the
+ * old snapshot; loading maps the file and decodes the sections in one pass.
+ * The generation names the first journal segment that is not yet folded in
+ * (see PlannerStore).
+ */
+public class SnapshotStore {
+    private static final int MAGIC = 0x53504C4E; // "SPLN"
+    private static final int FORMAT_VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    private Path file;
+    
+    public SnapshotStore(Path file) {
+        this.file = file;
+    }
+    
+    public Path getFile() { return file; }
+    
+    public boolean exists() {
+        return Files.isRegularFile(file);
+    }
+    
+    public void save(StudyPlannerService service) throws IOException {
+        save(service, 0);
+    }
+    
+    public void save(StudyPlannerService service, long generation) throws IOException {
+        replace(channel -> encode(service, generation, channel));
+    }
+    
+    /**
+     * Serializes in memory, so the caller's thread only pays for encoding;
+     * the bytes can then be written from another thread with write()
+     */
+    public byte[] encode(StudyPlannerService service, long generation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        encode(service, generation, Channels.newChannel(bytes));
+        return bytes.toByteArray();
+    }
+    
+    public void write(byte[] snapshot) throws IOException {
+        replace(channel -> {
+            ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+            while (buffer.hasRemaining()) channel.write(buffer);
+        });
+    }
+    
+    private interface ChannelAction {
+        void run(FileChannel channel) throws IOException;
+    }
+    
+    /**
+     * Writes a temporary file, forces it to disk and renames it over the snapshot
+     */
+    private void replace(ChannelAction action) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            action.run(channel);
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private void encode(StudyPlannerService service, long generation, WritableByteChannel channel) throws IOException {
+        SubjectGraph graph = service.getGraph();
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        
+        // Subjects in study-path order so reloading reproduces the same order
+        Set<Subject> ordered = new LinkedHashSet<>(graph.getTopologicalOrder());
+        ordered.addAll(graph.getSubjects().values());
+        List<Subject> subjects = new ArrayList<>(ordered);
+        Map<String, Integer> subjectIndex = new HashMap<>();
+        for (Subject subject : subjects) {
+            subjectIndex.put(subject.getId(), subjectIndex.size());
+            intern(strings, subject.getId());
+            intern(strings, subject.getName());
+        }
+        
+        // A catalogue is stored as its path plus the differences, so nothing lazy is read in
+        SyllabusTree tree = service.getSyllabusTree();
+        String catalogue = tree.getSource() instanceof SyllabusStore
+            ? ((SyllabusStore) tree.getSource()).getFile().toAbsolutePath().toString() : null;
+        List<Topic> topics = new ArrayList<>();
+        Map<String, Boolean> changes = Collections.emptyMap();
+        if (catalogue == null) {
+            topics = tree.getPreOrderTraversal();
+        } else {
+            intern(strings, catalogue);
+            for (Topic subtree : tree.getAddedSubtrees()) TopicTraversal.preOrder(subtree).forEachRemaining(topics::add);
+            changes = tree.getCompletionChanges();
+            for (String id : changes.keySet()) intern(strings, id);
+        }
+        for (Topic topic : topics) {
+            if (catalogue != null) intern(strings, topic.getParent().getId());
+            intern(strings, topic.getId());
+            intern(strings, topic.getTitle());
+        }
+        
+        List<WeaknessHeap.HeapNode> weaknesses = service.getWeaknessHeap().getSortedNodes();
+        for (WeaknessHeap.HeapNode node : weaknesses) {
+            intern(strings, node.getTopicId());
+            intern(strings, node.getTopicName());
+            if (node.getSubjectId() != null) intern(strings, node.getSubjectId());
+        }
+        
+        ChannelWriter out = new ChannelWriter(channel);
+        out.putInt(MAGIC);
+        out.putInt(FORMAT_VERSION);
+        out.putLong(generation);
+        
+        out.putInt(strings.size());
+        for (String s : strings.keySet()) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.putInt(bytes.length);
+            out.put(bytes);
+        }
+        
+        out.putInt(subjects.size());
+        for (Subject subject : subjects) {
+            out.putInt(strings.get(subject.getId()));
+            out.putInt(strings.get(subject.getName()));
+            out.putDouble(subject.getScore());
+            out.putInt(subject.getX());
+            out.putInt(subject.getY());
+            out.putDouble(subject.hasExplicitEffort() ? subject.getEffort() : Double.NaN);
+        }
+        
+        int edgeCount = 0;
+        for (List<String> dependents : graph.getAdjacencyList().values()) edgeCount += dependents.size();
+        out.putInt(edgeCount);
+        for (Map.Entry<String, List<String>> entry : graph.getAdjacencyList().entrySet()) {
+            int from = subjectIndex.get(entry.getKey());
+            for (String dependent : entry.getValue()) {
+                out.putInt(from);
+                out.putInt(subjectIndex.get(dependent));
+            }
+        }
+        
+        if (catalogue == null) {
+            out.putInt(-1);
+            out.putInt(topics.size());
+            for (Topic topic : topics) {
+                out.putInt(strings.get(topic.getId()));
+                out.putInt(strings.get(topic.getTitle()));
+                out.put(topic.isCompleted() ? (byte) 1 : (byte) 0);
+                out.putInt(topic.getChildCount());
+            }
+        } else {
+            out.putInt(strings.get(catalogue));
+            out.putInt(tree.getResidentBudget());
+            out.putInt(topics.size());
+            for (Topic topic : topics) {
+                out.putInt(strings.get(topic.getParent().getId()));
+                out.putInt(strings.get(topic.getId()));
+                out.putInt(strings.get(topic.getTitle()));
+                out.put(topic.isCompleted() ? (byte) 1 : (byte) 0);
+            }
+            out.putInt(changes.size());
+            for (Map.Entry<String, Boolean> change : changes.entrySet()) {
+                out.putInt(strings.get(change.getKey()));
+                out.put(change.getValue() ? (byte) 1 : (byte) 0);
+            }
+        }
+        
+        SpacedRepetitionQueue schedules = service.getWeaknessHeap() instanceof SpacedRepetitionQueue
+            ? (SpacedRepetitionQueue) service.getWeaknessHeap() : null;
+        out.putInt(weaknesses.size());
+        for (WeaknessHeap.HeapNode node : weaknesses) {
+            out.putInt(strings.get(node.getTopicId()));
+            out.putInt(strings.get(node.getTopicName()));
+            out.putDouble(node.getWeaknessScore());
+            out.putInt(node.getSubjectId() == null ? -1 : strings.get(node.getSubjectId()));
+            out.putDouble(schedules == null ? Double.NaN : schedules.getBase(node.getTopicId()));
+            out.putLong(schedules == null ? Long.MIN_VALUE : schedules.getLastStudied(node.getTopicId()));
+        }
+        out.flush();
+    }
+    
+    public StudyPlannerService load() throws IOException {
+        StudyPlannerService service = new StudyPlannerService();
+        loadInto(service);
+        return service;
+    }
+    
+    /**
+     * Restores the snapshot into a freshly constructed service (empty, or
+     * forked from a curriculum) and returns its journal generation
+     */
+    public long loadInto(StudyPlannerService service) throws IOException {
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (in.getInt() != MAGIC) throw new IOException("Not a study planner snapshot: " + file);
+            int version = in.getInt();
+            if (version != FORMAT_VERSION) throw new IOException("Unsupported snapshot version " + version);
+            long generation = in.getLong();
+            
+            String[] strings = new String[in.getInt()];
+            byte[] scratch = new byte[64];
+            for (int i = 0; i < strings.length; i++) {
+                int length = in.getInt();
+                if (scratch.length < length) scratch = new byte[Math.max(length, scratch.length * 2)];
+                in.get(scratch, 0, length);
+                strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+            
+            readSubjects(in, strings, service);
+            readSyllabus(in, strings, service);
+            readWeaknesses(in, strings, service);
+            return generation;
+        } catch (RuntimeException e) {
+            // Truncated or corrupt sections surface as buffer/index errors
+            throw new IOException("Corrupt snapshot: " + file, e);
+        }
+    }
+    
+    private void readSubjects(ByteBuffer in, String[] strings, StudyPlannerService service) {
+        int count = in.getInt();
+        String[] ids = new String[count];
+        Map<String, Subject> known = service.getGraph().getSubjects();
+        for (int i = 0; i < count; i++) {
+            ids[i] = strings[in.getInt()];
+            String name = strings[in.getInt()];
+            double score = in.getDouble();
+            int x = in.getInt();
+            int y = in.getInt();
+            double effort = in.getDouble();
+            
+            // Keep sharing the curriculum's strings rather than the decoded copies
+            Subject existing = known.get(ids[i]);
+            if (existing != null) {
+                ids[i] = existing.getId();
+                if (existing.getName().equals(name)) name = existing.getName();
+            }
+            
+            service.addSubject(ids[i], name, score);
+            Subject subject = service.getGraph().getSubjects().get(ids[i]);
+            subject.setX(x);
+            subject.setY(y);
+            if (!Double.isNaN(effort)) subject.setEffort(effort);
+        }
+        
+        int edgeCount = in.getInt();
+        List<Prerequisite> edges = new ArrayList<>(edgeCount);
+        for (int i = 0; i < edgeCount; i++) {
+            String prerequisite = ids[in.getInt()];
+            edges.add(new Prerequisite(ids[in.getInt()], prerequisite));
+        }
+        service.addPrerequisites(edges);
+    }
+    
+    /**
+     * Reopens a catalogue lazily and reapplies what changed on top of it,
+     * loading only the paths to those topics
+     */
+    private void readSyllabus(ByteBuffer in, String[] strings, StudyPlannerService service) throws IOException {
+        int catalogue = in.getInt();
+        if (catalogue < 0) {
+            readTree(in, strings, service.getSyllabusTree().getRoot());
+            return;
+        }
+        service.openSyllabusCatalogue(Path.of(strings[catalogue]), in.getInt());
+        SyllabusTree tree = service.getSyllabusTree();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            String parentId = strings[in.getInt()];
+            Topic topic = new Topic(strings[in.getInt()], strings[in.getInt()]);
+            topic.setCompleted(in.get() != 0); // before attaching, so it is not taken for a toggle
+            Topic parent = tree.findTopic(parentId);
+            if (parent == null) throw new IllegalStateException("Parent " + parentId + " of topic " + topic.getId() + " is missing");
+            parent.addChild(topic);
+        }
+        int changed = in.getInt();
+        for (int i = 0; i < changed; i++) {
+            String id = strings[in.getInt()];
+            Topic topic = tree.findTopic(id);
+            if (topic == null) throw new IllegalStateException("Toggled topic " + id + " is not in the catalogue");
+            topic.setCompleted(in.get() != 0);
+        }
+    }
+    
+    /**
+     * Rebuilds the pre-order records with a stack of topics still expecting children
+     */
+    private void readTree(ByteBuffer in, String[] strings, Topic root) {
+        int count = in.getInt();
+        if (count == 0) return;
+        in.getInt(); // root id and title are fixed by SyllabusTree
+        in.getInt();
+        root.setCompleted(in.get() != 0);
+        
+        Deque<Topic> open = new ArrayDeque<>();
+        Deque<int[]> remaining = new ArrayDeque<>();
+        int rootChildren = in.getInt();
+        for (int i = 1; i < count; i++) {
+            Topic topic = new Topic(strings[in.getInt()], strings[in.getInt()]);
+            topic.setCompleted(in.get() != 0);
+            int children = in.getInt();
+            
+            // Each top-level subtree is built detached and attached once complete
+            if (open.isEmpty()) {
+                if (rootChildren-- == 0) throw new IllegalStateException("Syllabus records do not form a tree");
+            } else {
+                open.peek().addChild(topic);
+                remaining.peek()[0]--;
+            }
+            open.push(topic);
+            remaining.push(new int[] { children });
+            
+            while (!open.isEmpty() && remaining.peek()[0] == 0) {
+                Topic done = open.pop();
+                remaining.pop();
+                if (open.isEmpty()) root.addChild(done);
+            }
+        }
+        if (!open.isEmpty() || rootChildren != 0) throw new IllegalStateException("Syllabus records do not form a tree");
+    }
+    
+    /**
+     * Subjects re-queued themselves while loading; the saved heap is authoritative.
+     * A spaced-repetition queue gets back the saved schedules, when there are any.
+     */
+    private void readWeaknesses(ByteBuffer in, String[] strings, StudyPlannerService service) {
+        WeaknessQueue heap = service.getWeaknessHeap();
+        Set<String> saved = new HashSet<>();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            String topicId = strings[in.getInt()];
+            String topicName = strings[in.getInt()];
+            double weakness = in.getDouble();
+            int subjectRef = in.getInt();
+            String subjectId = subjectRef < 0 ? null : strings[subjectRef];
+            Subject subject = subjectId == null ? null : service.getGraph().getSubjects().get(subjectId);
+            double base = in.getDouble();
+            long lastStudied = in.getLong();
+            
+            WeaknessHeap.HeapNode node = new WeaknessHeap.HeapNode(topicId, topicName, weakness, subjectId, subject);
+            heap.remove(topicId);
+            if (heap instanceof SpacedRepetitionQueue && lastStudied != Long.MIN_VALUE) {
+                ((SpacedRepetitionQueue) heap).schedule(node, base, lastStudied);
+            } else {
+                heap.insert(node);
+            }
+            saved.add(topicId);
+        }
+        for (String id : service.getGraph().getSubjects().keySet()) {
+            if (!saved.contains(id)) heap.remove(id);
+        }
+    }
+    
+    private static void intern(Map<String, Integer> strings, String s) {
+        strings.putIfAbsent(s, strings.size());
+    }
+    
+    /**
+     * Buffers primitive writes and hands full buffers to the channel
+     */
+    static class ChannelWriter {
+        private WritableByteChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        
+        ChannelWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+        
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+        
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+        
+        void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+        
+        void put(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+        
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+        
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+        
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package backend.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import backend.datastructure.SyllabusTree;
+import backend.model.Topic;
+
+/**
+ * Streams a syllabus file into a SyllabusTree in a single pass.
+ *
+ * OUTLINE: one "id title" per line, nesting given by indentation.
+ * CSV:     "id,parentId,title" rows in depth-first order, each parent before its children.
+ *          An empty parentId, or one naming a topic already in the tree, attaches there.
+ *
+ * Only the chain of open ancestors is kept while reading. New subtrees are
+ * built detached and attached once the whole file has parsed, so a malformed
+ * file leaves the tree untouched.
+ */
+public class SyllabusLoader {
+    public enum Format {
+        OUTLINE, CSV;
+        
+        public static Format forFile(Path file) {
+            return file.getFileName().toString().toLowerCase().endsWith(".csv") ? CSV : OUTLINE;
+        }
+    }
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int TAB_WIDTH = 4;
+    
+    private SyllabusTree tree;
+    private List<Topic> attached = Collections.emptyList();
+    
+    public SyllabusLoader(SyllabusTree tree) {
+        this.tree = tree;
+    }
+    
+    /**
+     * Loads under the tree's root; returns the number of topics read
+     */
+    public int load(Path file) throws IOException {
+        return load(file, Format.forFile(file), tree.getRoot().getId());
+    }
+    
+    public int load(Path file, Format format, String parentId) throws IOException {
+        Topic attachPoint = tree.findTopic(parentId);
+        if (attachPoint == null) {
+            throw new IllegalArgumentException("Unknown parent topic: " + parentId);
+        }
+        
+        // (existing parent, new subtree) pairs, attached after the last line
+        List<Topic[]> attachments = new ArrayList<>();
+        int count;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             BufferedReader reader = new BufferedReader(
+                 Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE), BUFFER_SIZE)) {
+            count = format == Format.CSV
+                ? readCsv(reader, attachPoint, attachments)
+                : readOutline(reader, attachPoint, attachments);
+        }
+        
+        List<Topic> subtrees = new ArrayList<>(attachments.size());
+        for (Topic[] attachment : attachments) {
+            attachment[0].addChild(attachment[1]);
+            subtrees.add(attachment[1]);
+        }
+        attached = subtrees;
+        return count;
+    }
+    
+    /**
+     * Roots of the subtrees the last load attached, in the order they went in
+     */
+    public List<Topic> getAttachedSubtrees() { return attached; }
+    
+    private int readOutline(BufferedReader reader, Topic attachPoint, List<Topic[]> attachments) throws IOException {
+        Deque<Topic> open = new ArrayDeque<>();
+        Deque<Integer> indents = new ArrayDeque<>();
+        int count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int indent = 0;
+            int i = 0;
+            for (; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == ' ') indent++;
+                else if (c == '\t') indent += TAB_WIDTH - indent % TAB_WIDTH;
+                else break;
+            }
+            if (i == line.length() || line.charAt(i) == '#') continue; // blank or comment
+            
+            String entry = line.substring(i).trim();
+            int split = indexOfWhitespace(entry);
+            String id = split < 0 ? entry : entry.substring(0, split);
+            String title = split < 0 ? id : entry.substring(split).trim();
+            
+            while (!indents.isEmpty() && indents.peek() >= indent) {
+                indents.pop();
+                open.pop();
+            }
+            Topic topic = new Topic(id, title);
+            if (open.isEmpty()) {
+                attachments.add(new Topic[] { attachPoint, topic });
+            } else {
+                open.peek().addChild(topic);
+            }
+            open.push(topic);
+            indents.push(indent);
+            count++;
+        }
+        return count;
+    }
+    
+    private int readCsv(BufferedReader reader, Topic attachPoint, List<Topic[]> attachments) throws IOException {
+        Deque<Topic> open = new ArrayDeque<>();
+        int count = 0;
+        int lineNo = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) continue;
+            List<String> fields = parseCsvLine(line, lineNo);
+            if (fields.size() < 2) {
+                throw new IOException("Line " + lineNo + ": expected id,parentId[,title]");
+            }
+            String id = fields.get(0).trim();
+            String parentId = fields.get(1).trim();
+            if (lineNo == 1 && id.equalsIgnoreCase("id")) continue; // header
+            if (id.isEmpty()) {
+                throw new IOException("Line " + lineNo + ": missing topic id");
+            }
+            String title = fields.size() > 2 ? fields.get(2).trim() : id;
+            
+            // Unwind to the parent; it is either still open or already in the tree
+            while (!open.isEmpty() && !open.peek().getId().equals(parentId)) {
+                open.pop();
+            }
+            Topic topic = new Topic(id, title);
+            if (!open.isEmpty()) {
+                open.peek().addChild(topic);
+            } else {
+                Topic existing = parentId.isEmpty() ? attachPoint : tree.findTopic(parentId);
+                if (existing == null) {
+                    throw new IOException("Line " + lineNo + ": parent " + parentId
+                        + " is neither an enclosing row nor an existing topic");
+                }
+                attachments.add(new Topic[] { existing, topic });
+            }
+            open.push(topic);
+            count++;
+        }
+        return count;
+    }
+    
+    private static int indexOfWhitespace(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.isWhitespace(s.charAt(i))) return i;
+        }
+        return -1;
+    }
+    
+    /**
+     * Splits one CSV record; fields may be quoted, with "" for a literal quote
+     */
+    static List<String> parseCsvLine(String line, int lineNo) throws IOException {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IOException("Line " + lineNo + ": unterminated quote");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
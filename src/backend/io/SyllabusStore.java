@@ -0,0 +1,198 @@
+package backend.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import backend.datastructure.SyllabusTree;
+import backend.model.Topic;
+
+/**
+ * Indexed on-disk catalogue of a syllabus that a SyllabusTree reads lazily.
+ *
+ * Layout (big-endian):
+ *   header     magic, format version, topic count, directory offset
+ *   records    one per topic in pre-order, root first: parent offset (-1 for the root),
+ *              offset just past its subtree, completed, completion, subtree size,
+ *              leaf count, completed leaf count, child count,
+ *              id, title (int length + UTF-8 bytes each)
+ *   directory  record offsets sorted by topic id
+ *
+ * A topic's first child follows its record and each child's subtree ends where
+ * the next sibling starts, so one child list is read without touching anything
+ * below it. The file is mapped on open; children come back as stubs carrying
+ * their stored aggregates, and lookups by id binary-search the directory.
+ */
+public class SyllabusStore implements SyllabusTree.TopicSource {
+    private static final int MAGIC = 0x53504C43; // "SPLC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int FIXED_SIZE = 33; // record bytes before the id
+    
+    private Path file;
+    private ByteBuffer data;
+    private int count;
+    private int directory;
+    
+    public SyllabusStore(Path file) {
+        this.file = file;
+    }
+    
+    public Path getFile() { return file; }
+    
+    /**
+     * Writes every topic of the tree (loading any lazy subtrees on the way)
+     */
+    public void save(SyllabusTree tree) throws IOException {
+        List<Topic> topics = tree.getPreOrderTraversal();
+        int n = topics.size();
+        byte[][] ids = new byte[n][];
+        byte[][] titles = new byte[n][];
+        int[] offsets = new int[n + 1];
+        long offset = HEADER_SIZE;
+        for (int i = 0; i < n; i++) {
+            ids[i] = topics.get(i).getId().getBytes(StandardCharsets.UTF_8);
+            titles[i] = topics.get(i).getTitle().getBytes(StandardCharsets.UTF_8);
+            offsets[i] = (int) offset;
+            offset += FIXED_SIZE + 4 + ids[i].length + 4 + titles[i].length;
+            if (offset + 4L * n > Integer.MAX_VALUE) throw new IOException("Syllabus too large for one catalogue");
+        }
+        offsets[n] = (int) offset;
+        
+        // Directory: stable sort by id, so the first topic in pre-order wins a duplicate id
+        Integer[] byId = new Integer[n];
+        for (int i = 0; i < n; i++) byId[i] = i;
+        Arrays.sort(byId, Comparator.comparing(i -> topics.get(i).getId()));
+        
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SnapshotStore.ChannelWriter out = new SnapshotStore.ChannelWriter(channel);
+            out.putInt(MAGIC);
+            out.putInt(FORMAT_VERSION);
+            out.putInt(n);
+            out.putInt(offsets[n]);
+            
+            // Open ancestors, to find each record's parent
+            Deque<Integer> open = new ArrayDeque<>();
+            for (int i = 0; i < n; i++) {
+                Topic topic = topics.get(i);
+                while (!open.isEmpty() && open.peek() + topics.get(open.peek()).getSubtreeSize() <= i) open.pop();
+                out.putInt(open.isEmpty() ? -1 : offsets[open.peek()]);
+                out.putInt(offsets[i + topic.getSubtreeSize()]);
+                out.put(topic.isCompleted() ? (byte) 1 : (byte) 0);
+                out.putDouble(topic.getCompletionPercentage());
+                out.putInt(topic.getSubtreeSize());
+                out.putInt(topic.getLeafCount());
+                out.putInt(topic.getCompletedLeafCount());
+                out.putInt(topic.getChildCount());
+                out.putInt(ids[i].length);
+                out.put(ids[i]);
+                out.putInt(titles[i].length);
+                out.put(titles[i]);
+                open.push(i);
+            }
+            for (int i : byId) out.putInt(offsets[i]);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Maps the catalogue; pass the store to new SyllabusTree(store) afterwards
+     */
+    public SyllabusStore open() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (data.getInt(0) != MAGIC) throw new IOException("Not a syllabus catalogue: " + file);
+            int version = data.getInt(4);
+            if (version != FORMAT_VERSION) throw new IOException("Unsupported catalogue version " + version);
+            count = data.getInt(8);
+            directory = data.getInt(12);
+            if (count < 1 || directory < HEADER_SIZE || directory + 4L * count > data.limit()) {
+                throw new IOException("Corrupt syllabus catalogue: " + file);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt syllabus catalogue: " + file, e);
+        }
+        return this;
+    }
+    
+    @Override
+    public Topic loadRoot() {
+        return readTopic(HEADER_SIZE);
+    }
+    
+    @Override
+    public List<String> pathTo(String id) {
+        int record = find(id);
+        if (record < 0) return null;
+        List<String> path = new ArrayList<>();
+        while (data.getInt(record) >= 0) { // the root itself is not part of the path
+            path.add(readString(record + FIXED_SIZE));
+            record = data.getInt(record);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+    
+    /**
+     * Offset of the first record with the id, or -1
+     */
+    private int find(String id) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (readString(data.getInt(directory + 4 * mid) + FIXED_SIZE).compareTo(id) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        if (lo == count) return -1;
+        int record = data.getInt(directory + 4 * lo);
+        return readString(record + FIXED_SIZE).equals(id) ? record : -1;
+    }
+    
+    private Topic readTopic(int record) {
+        try {
+            boolean completed = data.get(record + 8) != 0;
+            double completion = data.getDouble(record + 9);
+            int subtreeSize = data.getInt(record + 17);
+            int leaves = data.getInt(record + 21);
+            int completedLeaves = data.getInt(record + 25);
+            int childCount = data.getInt(record + 29);
+            String id = readString(record + FIXED_SIZE);
+            int titleAt = record + FIXED_SIZE + 4 + data.getInt(record + FIXED_SIZE);
+            String title = readString(titleAt);
+            int firstChild = titleAt + 4 + data.getInt(titleAt);
+            return new Topic(id, title, completed, completion, subtreeSize, leaves, completedLeaves, childCount,
+                childCount == 0 ? null : parent -> readChildren(firstChild, childCount));
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Corrupt syllabus catalogue: " + file, e);
+        }
+    }
+    
+    private List<Topic> readChildren(int record, int childCount) {
+        List<Topic> children = new ArrayList<>(childCount);
+        for (int i = 0; i < childCount; i++) {
+            children.add(readTopic(record));
+            record = data.getInt(record + 4); // past this child's subtree
+        }
+        return children;
+    }
+    
+    private String readString(int at) {
+        int length = data.getInt(at);
+        byte[] bytes = new byte[length];
+        data.get(at + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
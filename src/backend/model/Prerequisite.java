@@ -0,0 +1,39 @@
+package backend.model;
+
+import java.util.Objects;
+
+/**
+ * Model class representing a prerequisite edge in the Graph
+ * (prerequisiteId must be studied before subjectId)
+ */
+public class Prerequisite {
+    private String subjectId;
+    private String prerequisiteId;
+    
+    public Prerequisite(String subjectId, String prerequisiteId) {
+        this.subjectId = subjectId;
+        this.prerequisiteId = prerequisiteId;
+    }
+    
+    // Getters
+    public String getSubjectId() { return subjectId; }
+    public String getPrerequisiteId() { return prerequisiteId; }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Prerequisite)) return false;
+        Prerequisite other = (Prerequisite) o;
+        return subjectId.equals(other.subjectId) && prerequisiteId.equals(other.prerequisiteId);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(subjectId, prerequisiteId);
+    }
+    
+    @Override
+    public String toString() {
+        return prerequisiteId + " -> " + subjectId;
+    }
+}
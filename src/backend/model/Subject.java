@@ -1,5 +1,8 @@
 package backend.model;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * Model class representing a Subject/Node in the Graph
  */
@@ -8,6 +11,20 @@ public class Subject {
     private String name;
     private double score; // 0-100
     private int x, y; // Coordinates for visualization
+    private double effort; // Weeks of study, NaN = derive from weakness
+    private List<ChangeListener> listeners;
+    
+    /**
+     * Notified when the score or effort of a subject changes
+     */
+    public interface ChangeListener {
+        void subjectChanged(Subject subject);
+        
+        /**
+         * Coordinates changed; they affect neither weakness nor effort
+         */
+        default void subjectMoved(Subject subject) {}
+    }
     
     public Subject(String id, String name, double score) {
         this.id = id;
@@ -15,22 +32,81 @@ public class Subject {
         this.score = score;
         this.x = (int)(Math.random() * 400) + 50;
         this.y = (int)(Math.random() * 300) + 50;
+        this.effort = Double.NaN;
+        this.listeners = new CopyOnWriteArrayList<>(); // listeners may come and go while firing
     }
     
     // Getters and Setters
     public String getId() { return id; }
     public String getName() { return name; }
     public double getScore() { return score; }
-    public void setScore(double score) { this.score = score; }
+    public void setScore(double score) {
+        if (this.score == score) return;
+        this.score = score;
+        fireChanged();
+    }
     public int getX() { return x; }
-    public void setX(int x) { this.x = x; }
+    public void setX(int x) {
+        if (this.x == x) return;
+        this.x = x;
+        fireMoved();
+    }
     public int getY() { return y; }
-    public void setY(int y) { this.y = y; }
+    public void setY(int y) {
+        if (this.y == y) return;
+        this.y = y;
+        fireMoved();
+    }
     
     public double getWeaknessScore() {
         return 100.0 - score;
     }
     
+    /**
+     * Estimated weeks of study: explicit if set, otherwise 1 week
+     * plus 1 more per 25 points of weakness.
+     */
+    public double getEffort() {
+        return Double.isNaN(effort) ? 1.0 + getWeaknessScore() / 25.0 : effort;
+    }
+    
+    /**
+     * Sets an explicit effort estimate; NaN goes back to the derived one.
+     */
+    public void setEffort(double effort) {
+        if (Double.compare(this.effort, effort) == 0) return; // also true for NaN == NaN
+        this.effort = effort;
+        fireChanged();
+    }
+    
+    public boolean hasExplicitEffort() { return !Double.isNaN(effort); }
+    
+    public void addChangeListener(ChangeListener listener) { listeners.add(listener); }
+    public void removeChangeListener(ChangeListener listener) { listeners.remove(listener); }
+    
+    /**
+     * Detached copy with the same state and no listeners
+     */
+    public Subject copy() {
+        Subject copy = new Subject(id, name, score);
+        copy.x = x;
+        copy.y = y;
+        copy.effort = effort;
+        return copy;
+    }
+    
+    private void fireChanged() {
+        for (ChangeListener listener : listeners) {
+            listener.subjectChanged(this);
+        }
+    }
+    
+    private void fireMoved() {
+        for (ChangeListener listener : listeners) {
+            listener.subjectMoved(this);
+        }
+    }
+    
     @Override
     public String toString() {
         return name + " (" + String.format("%.0f%%", score) + ")";
@@ -1,55 +1,352 @@
 package backend.model;
 
-import java.util.ArrayList;
+import java.util.AbstractSequentialList;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
 
 /**
  * Tree node model for Syllabus hierarchy
+ * Completion, subtree size and leaf counts are cached per node and kept
+ * current by walking the parent chain on every change (O(depth) per update)
+ * Children are a doubly linked sibling list, so removing one is O(1)
+ * A topic built from a ChildLoader keeps its children out of memory until
+ * they are first accessed; its aggregates are supplied up front
  */
 public class Topic {
     private String id;
     private String title;
     private boolean completed;
-    private List<Topic> children;
     private Topic parent;
+    private long version; // bumped on any change inside this subtree
+    
+    // Children as a linked list of siblings
+    private Topic firstChild, lastChild;
+    private Topic prevSibling, nextSibling;
+    private int childCount;
+    private List<Topic> childrenView;
+    private ChildLoader loader; // reads the children in while they are not resident
+    private boolean loaded;
+    
+    // Only set on a tree's root; told about every subtree attached below it
+    private TreeListener treeListener;
+    
+    // Cached aggregates
+    private double completion;  // leaf: 0/100, otherwise mean of children
+    private double childSum;    // sum of the children's completion
+    private int subtreeSize;    // topics in this subtree, including this one
+    private int leaves;         // leaf topics in this subtree (1 for a leaf)
+    private int completedLeaves;
+    
+    /**
+     * Notified when subtrees are attached to or detached from a tree,
+     * and when a topic in it is marked complete or incomplete
+     */
+    public interface TreeListener {
+        void attached(Topic subtree);
+        void detached(Topic parent, Topic subtree);
+        default void completionToggled(Topic topic) {}
+        default void childrenLoaded(Topic parent) {}
+    }
+    
+    /**
+     * Source of a lazily loaded topic's children, e.g. a syllabus catalogue
+     */
+    public interface ChildLoader {
+        List<Topic> loadChildren(Topic parent);
+    }
     
     public Topic(String id, String title) {
         this.id = id;
         this.title = title;
-        this.children = new ArrayList<>();
+        this.childrenView = new ChildList();
         this.completed = false;
+        this.subtreeSize = 1;
+        this.leaves = 1;
+        this.loaded = true;
+    }
+    
+    /**
+     * A topic whose children stay in the loader until first accessed;
+     * completion, size and leaf counts come precomputed, so the aggregates
+     * above it are exact without loading anything
+     */
+    public Topic(String id, String title, boolean completed, double completion, int subtreeSize,
+                 int leaves, int completedLeaves, int childCount, ChildLoader loader) {
+        this(id, title);
+        if (childCount > 0 && loader == null) throw new IllegalArgumentException("Topic " + id + " needs a loader");
+        this.completed = completed;
+        this.completion = completion;
+        this.subtreeSize = subtreeSize;
+        this.leaves = leaves;
+        this.completedLeaves = completedLeaves;
+        this.childCount = childCount;
+        this.childSum = completion * childCount;
+        this.loader = loader;
+        this.loaded = childCount == 0;
     }
     
     public void addChild(Topic child) {
+        ensureLoaded();
+        if (child.parent != null) {
+            child.parent.removeChild(child);
+        }
+        int oldLeaves = leaves, oldCompleted = completedLeaves;
+        if (childCount == 0) {
+            // A leaf stops counting itself once it has children
+            leaves = 0;
+            completedLeaves = 0;
+        }
+        link(child);
+        childCount++;
+        
+        childSum += child.completion;
+        leaves += child.leaves;
+        completedLeaves += child.completedLeaves;
+        Topic root = refresh(child.subtreeSize, leaves - oldLeaves, completedLeaves - oldCompleted);
+        if (root.treeListener != null) root.treeListener.attached(child);
+    }
+    
+    private void link(Topic child) {
         child.parent = this;
-        children.add(child);
+        child.prevSibling = lastChild;
+        child.nextSibling = null;
+        if (lastChild != null) lastChild.nextSibling = child;
+        else firstChild = child;
+        lastChild = child;
     }
     
-    public double getCompletionPercentage() {
-        if (children.isEmpty()) {
-            return completed ? 100.0 : 0.0;
+    /**
+     * Reads the children in on first access; nothing changes logically, so
+     * aggregates and versions stay as they are
+     */
+    private void ensureLoaded() {
+        if (loaded) return;
+        List<Topic> children = loader.loadChildren(this);
+        if (children.size() != childCount) {
+            throw new IllegalStateException("Topic " + id + " expected " + childCount
+                + " children but loaded " + children.size());
+        }
+        for (Topic child : children) link(child);
+        loaded = true;
+        
+        Topic root = this;
+        while (root.parent != null) root = root.parent;
+        if (root.treeListener != null) root.treeListener.childrenLoaded(this);
+    }
+    
+    /**
+     * Drops the resident children of a topic that has a loader, keeping its
+     * aggregates; they are read in again on next access. Only valid while the
+     * subtree is unchanged since it was loaded, and no listener is told.
+     * Returns false if the topic cannot be reloaded.
+     */
+    public boolean unloadChildren() {
+        if (loader == null || !loaded) return false;
+        Topic child = firstChild;
+        while (child != null) {
+            Topic next = child.nextSibling;
+            child.parent = null;
+            child.prevSibling = null;
+            child.nextSibling = null;
+            child = next;
         }
-        double sum = 0;
-        for (Topic child : children) {
-            sum += child.getCompletionPercentage();
+        firstChild = null;
+        lastChild = null;
+        loaded = false;
+        return true;
+    }
+    
+    /**
+     * Puts back progress a topic had before it was unloaded. Only for a topic
+     * just read in from a ChildLoader, whose parent's aggregates already count
+     * that progress, so nothing is pushed up and no listener is told.
+     */
+    public void restoreProgress(boolean completed, double completion, int completedLeaves) {
+        this.completed = completed;
+        this.completion = completion;
+        this.childSum = completion * childCount;
+        this.completedLeaves = completedLeaves;
+    }
+    
+    /**
+     * O(1) unlink plus the O(depth) aggregate update
+     */
+    public boolean removeChild(Topic child) {
+        if (child.parent != this) return false;
+        if (child.prevSibling != null) child.prevSibling.nextSibling = child.nextSibling;
+        else firstChild = child.nextSibling;
+        if (child.nextSibling != null) child.nextSibling.prevSibling = child.prevSibling;
+        else lastChild = child.prevSibling;
+        child.parent = null;
+        child.prevSibling = null;
+        child.nextSibling = null;
+        childCount--;
+        
+        childSum -= child.completion;
+        int oldLeaves = leaves, oldCompleted = completedLeaves;
+        if (childCount == 0) {
+            leaves = 1;
+            completedLeaves = completed ? 1 : 0;
+        } else {
+            leaves -= child.leaves;
+            completedLeaves -= child.completedLeaves;
         }
-        return sum / children.size();
+        Topic root = refresh(-child.subtreeSize, leaves - oldLeaves, completedLeaves - oldCompleted);
+        if (root.treeListener != null) root.treeListener.detached(this, child);
+        return true;
+    }
+    
+    /**
+     * Cached; O(1)
+     */
+    public double getCompletionPercentage() {
+        return completion;
     }
     
     // Getters and Setters
     public String getId() { return id; }
     public String getTitle() { return title; }
     public boolean isCompleted() { return completed; }
-    public void setCompleted(boolean completed) { this.completed = completed; }
-    public List<Topic> getChildren() { return children; }
+    public void setCompleted(boolean completed) {
+        if (this.completed == completed) return;
+        this.completed = completed;
+        int delta = 0;
+        if (childCount == 0) {
+            completedLeaves = completed ? 1 : 0;
+            delta = completed ? 1 : -1;
+        }
+        Topic root = refresh(0, 0, delta);
+        if (root.treeListener != null) root.treeListener.completionToggled(this);
+    }
+    public List<Topic> getChildren() { return childrenView; }
+    public int getChildCount() { return childCount; }
+    public Topic getFirstChild() {
+        ensureLoaded();
+        return firstChild;
+    }
+    /**
+     * Whether the children are in memory (always true unless built from a ChildLoader)
+     */
+    public boolean isLoaded() { return loaded; }
+    public Topic getNextSibling() { return nextSibling; }
     public Topic getParent() { return parent; }
+    public void setTreeListener(TreeListener listener) { this.treeListener = listener; }
+    public long getVersion() { return version; }
+    public int getSubtreeSize() { return subtreeSize; }
+    public int getLeafCount() { return leaves; }
+    public int getCompletedLeafCount() { return completedLeaves; }
+    
+    /**
+     * Recomputes this topic's completion and pushes the change up to the root,
+     * bumping versions and adjusting subtree sizes and leaf counts on the way
+     * (this topic's own counts are already updated).
+     * Returns the root that was reached.
+     */
+    private Topic refresh(int sizeDelta, int leafDelta, int completedLeafDelta) {
+        Topic node = this;
+        double old = node.completion;
+        node.recompute(sizeDelta);
+        while (node.parent != null) {
+            Topic up = node.parent;
+            up.childSum += node.completion - old;
+            up.leaves += leafDelta;
+            up.completedLeaves += completedLeafDelta;
+            old = up.completion;
+            up.recompute(sizeDelta);
+            node = up;
+        }
+        return node;
+    }
+    
+    private void recompute(int sizeDelta) {
+        if (childCount == 0) {
+            childSum = 0; // drop accumulated rounding
+            completion = completed ? 100.0 : 0.0;
+        } else {
+            completion = Math.max(0.0, Math.min(100.0, childSum / childCount));
+        }
+        subtreeSize += sizeDelta;
+        version++;
+    }
     
+    /**
+     * Pre-order search of this subtree along the sibling links (no recursion);
+     * lazily loaded children are read in as the search reaches them
+     */
     public Topic findTopic(String searchId) {
-        if (this.id.equals(searchId)) return this;
-        for (Topic child : children) {
-            Topic found = child.findTopic(searchId);
-            if (found != null) return found;
+        Topic node = this;
+        while (node != null) {
+            if (node.id.equals(searchId)) return node;
+            if (node.getFirstChild() != null) {
+                node = node.firstChild;
+                continue;
+            }
+            while (node != this && node.nextSibling == null) node = node.parent;
+            node = node == this ? null : node.nextSibling;
         }
         return null;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Read-only List view over the sibling chain
+     */
+    private class ChildList extends AbstractSequentialList<Topic> {
+        @Override
+        public int size() {
+            return childCount;
+        }
+        
+        @Override
+        public ListIterator<Topic> listIterator(int index) {
+            if (index < 0 || index > childCount) throw new IndexOutOfBoundsException("Index: " + index);
+            ensureLoaded();
+            ChildIterator it = new ChildIterator();
+            for (int i = 0; i < index; i++) it.next();
+            return it;
+        }
+    }
+    
+    private class ChildIterator implements ListIterator<Topic> {
+        private Topic next = firstChild;
+        private int nextIndex;
+        
+        @Override
+        public boolean hasNext() { return next != null; }
+        
+        @Override
+        public Topic next() {
+            if (next == null) throw new NoSuchElementException();
+            Topic current = next;
+            next = current.nextSibling;
+            nextIndex++;
+            return current;
+        }
+        
+        @Override
+        public boolean hasPrevious() { return nextIndex > 0; }
+        
+        @Override
+        public Topic previous() {
+            if (nextIndex == 0) throw new NoSuchElementException();
+            next = next == null ? lastChild : next.prevSibling;
+            nextIndex--;
+            return next;
+        }
+        
+        @Override
+        public int nextIndex() { return nextIndex; }
+        
+        @Override
+        public int previousIndex() { return nextIndex - 1; }
+        
+        @Override
+        public void remove() { throw new UnsupportedOperationException(); }
+        
+        @Override
+        public void set(Topic topic) { throw new UnsupportedOperationException(); }
+        
+        @Override
+        public void add(Topic topic) { throw new UnsupportedOperationException(); }
+    }
+}
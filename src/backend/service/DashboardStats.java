@@ -0,0 +1,8 @@
+package backend.service;
+
+/**
+ * Immutable snapshot of the numbers shown on the dashboard
+ */
+public record DashboardStats(int totalSubjects, int studyPathLength, int weakTopicsCount,
+                             double completionPercentage) {
+}
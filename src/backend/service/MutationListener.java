@@ -0,0 +1,31 @@
+package backend.service;
+
+import java.util.List;
+
+import backend.model.Prerequisite;
+import backend.model.Topic;
+
+/**
+ * Told about every successful StudyPlannerService mutation, in order,
+ * with enough detail to replay it on another service
+ */
+public interface MutationListener {
+    void subjectAdded(String id, String name, double score, int x, int y);
+    void subjectUpdated(String id, double score, double effort); // effort NaN = derived
+    void prerequisiteAdded(String subjectId, String prereqId);
+    void prerequisitesAdded(List<Prerequisite> edges);
+    void syllabusTopicAdded(String parentId, String topicId, String title);
+    void syllabusSubtreesAdded(List<Topic> subtrees); // already attached, so each has its parent
+    void syllabusCatalogueOpened(String file, int maxResident);
+    void topicToggled(String topicId);
+    void weaknessAdded(String topicId, String topicName, double weakness, String subjectId);
+    void weaknessRemoved(String topicId);
+    void weaknessRescheduled(String topicId, double base, long lastStudied);
+    
+    /**
+     * Brackets a run of mutations on the calling thread (runs may nest) that
+     * only has to be durable as a whole, once batchFinished returns
+     */
+    default void batchStarted() {}
+    default void batchFinished() {}
+}
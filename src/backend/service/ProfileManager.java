@@ -0,0 +1,205 @@
+package backend.service;
+
+import backend.datastructure.SubjectGraph;
+import backend.io.PlannerStore;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves the planners of many students from one JVM.
+ *
+ * Open profiles sit in an LRU cache bounded by count and by total weight
+ * (subjects + resident syllabus topics + queued weaknesses, measured when a
+ * profile is fetched). Each profile is a PlannerStore under directory/<studentId>,
+ * so evicting one closes it, which writes its snapshot, and the next fetch
+ * restores it from disk. Every planner is forked from one shared curriculum:
+ * the subject catalogue and prerequisite structure are held once, and each
+ * student adds only their own scores, syllabus completion and weakness queue.
+ * The journals of all open profiles share a small pool of writer threads.
+ */
+public class ProfileManager implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(ProfileManager.class.getName());
+    private static final int JOURNAL_WRITERS = 4; // shared by every open profile
+    
+    private Path directory;
+    private SubjectGraph curriculum;
+    private int maxProfiles;
+    private long maxWeight;
+    private LinkedHashMap<String, Profile> profiles; // least recently used first
+    private Set<String> closing; // evicted, final snapshot still being written
+    private long totalWeight;
+    private ExecutorService compactor;
+    private ExecutorService journalWriters;
+    
+    private static class Profile {
+        private String studentId;
+        private PlannerStore store;
+        private StudyPlannerService service;
+        private long weight;
+        private int users; // pinned while withProfile runs
+    }
+    
+    public ProfileManager(Path directory, SubjectGraph curriculum, int maxProfiles, long maxWeight) {
+        this.directory = directory;
+        this.curriculum = curriculum.fork(); // later edits to the caller's graph stay out
+        this.maxProfiles = Math.max(1, maxProfiles);
+        this.maxWeight = maxWeight;
+        this.profiles = new LinkedHashMap<>(16, 0.75f, true);
+        this.closing = new HashSet<>();
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "profile-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.journalWriters = Executors.newFixedThreadPool(JOURNAL_WRITERS, r -> {
+            Thread thread = new Thread(r, "profile-journal-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Runs the action on the student's planner, restored (or created) if it is
+     * not in memory. The profile cannot be evicted meanwhile, and actions on
+     * the same student run one at a time. The service must not be kept past
+     * the action: once evicted, its edits are no longer journaled.
+     */
+    public <T> T withProfile(String studentId, Function<StudyPlannerService, T> action) throws IOException {
+        Profile profile;
+        List<Profile> evicted;
+        synchronized (this) {
+            profile = fetch(studentId);
+            profile.users++;
+            evicted = evict(profile);
+        }
+        closeEvicted(evicted);
+        try {
+            synchronized (profile) {
+                return action.apply(profile.service);
+            }
+        } finally {
+            synchronized (this) {
+                profile.users--;
+            }
+        }
+    }
+    
+    private Profile fetch(String studentId) throws IOException {
+        if (studentId.isEmpty() || studentId.startsWith(".") || !studentId.matches("[A-Za-z0-9_.-]+")) {
+            throw new IllegalArgumentException("Invalid student id: " + studentId);
+        }
+        Profile profile = profiles.get(studentId);
+        if (profile == null) {
+            // An evicted store still writing its final snapshot owns the directory
+            while (closing.contains(studentId)) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while profile " + studentId + " was closing", e);
+                }
+            }
+            profile = profiles.get(studentId); // another thread may have reopened it
+        }
+        if (profile == null) {
+            profile = new Profile();
+            profile.studentId = studentId;
+            profile.store = new PlannerStore(directory.resolve(studentId),
+                PlannerStore.DEFAULT_COMPACTION_THRESHOLD, compactor, journalWriters);
+            profile.service = profile.store.open(new StudyPlannerService(curriculum));
+            profiles.put(studentId, profile);
+        } else {
+            totalWeight -= profile.weight;
+        }
+        profile.weight = weigh(profile.service);
+        totalWeight += profile.weight;
+        return profile;
+    }
+    
+    /**
+     * Takes least recently used profiles out until both bounds hold again;
+     * the one just fetched and any in use are kept. The caller closes them
+     * with closeEvicted once it has released the lock.
+     */
+    private List<Profile> evict(Profile keep) {
+        List<Profile> evicted = new ArrayList<>();
+        Iterator<Profile> it = profiles.values().iterator();
+        while ((profiles.size() > maxProfiles || totalWeight > maxWeight) && it.hasNext()) {
+            Profile eldest = it.next();
+            if (eldest == keep || eldest.users > 0) continue;
+            it.remove();
+            totalWeight -= eldest.weight;
+            closing.add(eldest.studentId);
+            evicted.add(eldest);
+        }
+        return evicted;
+    }
+    
+    /**
+     * Saves and closes evicted profiles without holding the manager, so a slow
+     * final snapshot only delays reopening that student. A failed close is
+     * logged rather than thrown at an unrelated caller: the store still stops
+     * its journal, whose segments keep every edit for the next open.
+     */
+    private void closeEvicted(List<Profile> evicted) {
+        for (Profile profile : evicted) {
+            try {
+                profile.store.close();
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Closing profile " + profile.studentId
+                    + " failed; its journal still holds the edits", e);
+            } finally {
+                synchronized (this) {
+                    closing.remove(profile.studentId);
+                    notifyAll();
+                }
+            }
+        }
+    }
+    
+    private static long weigh(StudyPlannerService service) {
+        return service.getGraph().getSubjects().size()
+            + service.getSyllabusTree().getResidentCount()
+            + service.getWeaknessHeap().size();
+    }
+    
+    public synchronized int getOpenProfiles() { return profiles.size(); }
+    
+    public synchronized long getTotalWeight() { return totalWeight; }
+    
+    public synchronized boolean isOpen(String studentId) { return profiles.containsKey(studentId); }
+    
+    /**
+     * Saves and closes every open profile
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        while (!closing.isEmpty()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while profiles were closing", e);
+            }
+        }
+        IOException failure = null;
+        for (Profile profile : profiles.values()) {
+            try {
+                profile.store.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        profiles.clear();
+        totalWeight = 0;
+        compactor.shutdown();
+        journalWriters.shutdown();
+        if (failure != null) throw failure;
+    }
+}
@@ -1,7 +1,11 @@
 package backend.service;
 
 import backend.datastructure.*;
+import backend.io.SyllabusLoader;
+import backend.io.SyllabusStore;
 import backend.model.*;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -10,97 +14,358 @@ import java.util.*;
 public class StudyPlannerService {
     private SubjectGraph graph;
     private SyllabusTree syllabusTree;
-    private WeaknessHeap weaknessHeap;
+    private WeaknessQueue weaknessHeap;
+    private LayeredSort layeredSort;
+    private MutationListener mutationListener;
+    
+    // Dashboard cache: each part is recomputed only when its source's version moves
+    private DashboardStats stats;
+    private long statsGraphVersion = -1;
+    private long statsHeapVersion = -1;
+    private long statsTreeVersion = -1;
     
     public StudyPlannerService() {
-        graph = new SubjectGraph();
+        this(new WeaknessHeap());
+    }
+    
+    /**
+     * Use e.g. a ConcurrentWeaknessQueue when several importers feed weaknesses,
+     * or a SpacedRepetitionQueue for time-decayed review priorities.
+     */
+    public StudyPlannerService(WeaknessQueue weaknessQueue) {
+        this(new SubjectGraph(), weaknessQueue);
+    }
+    
+    /**
+     * A planner over a fork of a shared curriculum: the subjects are this
+     * planner's own, the prerequisite structure is shared until edited
+     */
+    public StudyPlannerService(SubjectGraph curriculum) {
+        this(curriculum.fork(), new WeaknessHeap());
+        for (Subject subject : graph.getSubjects().values()) { // the order is empty for a cyclic curriculum
+            subject.addChangeListener(this::subjectChanged);
+            syncWeakness(subject);
+        }
+    }
+    
+    private StudyPlannerService(SubjectGraph graph, WeaknessQueue weaknessQueue) {
+        this.graph = graph;
         syllabusTree = new SyllabusTree("Curriculum Root");
-        weaknessHeap = new WeaknessHeap();
+        weaknessHeap = weaknessQueue;
+        layeredSort = new LayeredSort();
     }
     
     // Graph Operations
     public void addSubject(String id, String name, double score) {
         Subject subj = new Subject(id, name, score);
         graph.addSubject(subj);
-        
-        // Auto-add to heap if weak
-        if (score < 75) {
-            addWeaknessNode(id, name + " (General)", 100 - score, id, subj);
+        subj.addChangeListener(this::subjectChanged);
+        syncWeakness(subj); // a re-added id may replace or drop the old entry
+        if (mutationListener != null) mutationListener.subjectAdded(id, name, score, subj.getX(), subj.getY());
+    }
+    
+    /**
+     * Re-grading keeps the heap in sync (weak subjects are upserted, others
+     * dropped) and is reported to the mutation listener.
+     */
+    private void subjectChanged(Subject subject) {
+        if (graph.getSubjects().get(subject.getId()) != subject) return; // Replaced since
+        syncWeakness(subject);
+        if (mutationListener != null) {
+            mutationListener.subjectUpdated(subject.getId(), subject.getScore(),
+                subject.hasExplicitEffort() ? subject.getEffort() : Double.NaN);
+        }
+    }
+    
+    /**
+     * Points the subject's heap entry at its current state (implied by the
+     * subject, so not reported separately): weak subjects are upserted, others dropped
+     */
+    private void syncWeakness(Subject subject) {
+        String id = subject.getId();
+        if (subject.getScore() < 75) {
+            WeaknessHeap.HeapNode queued = weaknessHeap.get(id);
+            if (queued == null || queued.getSubject() != subject) {
+                weaknessHeap.insert(new WeaknessHeap.HeapNode(id, subject.getName() + " (General)",
+                    subject.getWeaknessScore(), id, subject));
+            } else if (queued.getWeaknessScore() != subject.getWeaknessScore()) {
+                weaknessHeap.update(id, subject.getWeaknessScore());
+            }
+        } else {
+            weaknessHeap.remove(id);
         }
     }
     
+    /**
+     * Re-grades a subject; journaled and re-queued like any score change.
+     * Returns false if there is no such subject.
+     */
+    public boolean setSubjectScore(String id, double score) {
+        Subject subject = graph.getSubjects().get(id);
+        if (subject == null) return false;
+        subject.setScore(score);
+        return true;
+    }
+    
     public void addPrerequisite(String subjectId, String prereqId) {
         graph.addPrerequisite(subjectId, prereqId);
+        if (mutationListener != null) mutationListener.prerequisiteAdded(subjectId, prereqId);
+    }
+    
+    /**
+     * Bulk import: applies all edges or none (see SubjectGraph.addPrerequisites).
+     */
+    public int addPrerequisites(List<Prerequisite> edges) {
+        int added = graph.addPrerequisites(edges);
+        if (mutationListener != null && added > 0) mutationListener.prerequisitesAdded(edges);
+        return added;
     }
     
     public List<Subject> getStudyPath() {
         return graph.getTopologicalOrder();
     }
     
+    /**
+     * Study path split into semesters: each layer only depends on earlier layers.
+     * Returns an empty list if the prerequisites contain a cycle.
+     */
+    public List<List<Subject>> getStudyLayers() {
+        CompactGraph frozen = graph.freeze();
+        List<List<Subject>> layers = new ArrayList<>();
+        for (int[] level : layeredSort.layers(frozen)) {
+            List<Subject> layer = new ArrayList<>(level.length);
+            for (int id : level) layer.add(frozen.getSubject(id));
+            layers.add(layer);
+        }
+        return layers;
+    }
+    
+    /**
+     * Everything that has to be studied before the given subject.
+     */
+    public List<Subject> getAllPrerequisites(String subjectId) {
+        return graph.getAllPrerequisites(subjectId);
+    }
+    
+    /**
+     * Everything that completing the given subject opens up.
+     */
+    public List<Subject> getUnlockedSubjects(String subjectId) {
+        return graph.getUnlockedBy(subjectId);
+    }
+    
+    /**
+     * Minimum weeks until a subject can be finished, given every prerequisite's effort.
+     */
+    public double getWeeksToComplete(String subjectId) {
+        return graph.getCriticalPath().getEarliestFinish(subjectId);
+    }
+    
+    public CriticalPath getCriticalPath() {
+        return graph.getCriticalPath();
+    }
+    
     // Tree Operations
     public void addSyllabusTopic(String parentId, String topicId, String title) {
+        if (!syllabusTree.containsTopic(parentId)) {
+            throw new IllegalArgumentException("Unknown parent topic: " + parentId);
+        }
         Topic topic = new Topic(topicId, title);
         syllabusTree.addTopic(parentId, topic);
+        if (mutationListener != null) mutationListener.syllabusTopicAdded(parentId, topicId, title);
+    }
+    
+    /**
+     * Bulk-loads an outline or parent-id CSV (by file extension) under the root;
+     * returns the number of topics added
+     */
+    public int loadSyllabus(Path file) throws IOException {
+        SyllabusLoader loader = new SyllabusLoader(syllabusTree);
+        int count = loader.load(file);
+        List<Topic> subtrees = loader.getAttachedSubtrees();
+        if (mutationListener != null && !subtrees.isEmpty()) mutationListener.syllabusSubtreesAdded(subtrees);
+        return count;
+    }
+    
+    /**
+     * Writes the syllabus as an indexed catalogue for openSyllabusCatalogue
+     */
+    public void saveSyllabusCatalogue(Path file) throws IOException {
+        new SyllabusStore(file).save(syllabusTree);
+        syllabusTree.trim(); // saving read every lazy subtree in
+    }
+    
+    /**
+     * Switches to a saved catalogue whose subtrees are read on first access,
+     * keeping about maxResident topics in memory; progress stays exact
+     */
+    public void openSyllabusCatalogue(Path file, int maxResident) throws IOException {
+        SyllabusTree tree = new SyllabusTree(new SyllabusStore(file).open());
+        tree.setResidentBudget(maxResident);
+        syllabusTree = tree;
+        statsTreeVersion = -1;
+        if (mutationListener != null) {
+            mutationListener.syllabusCatalogueOpened(file.toAbsolutePath().toString(), maxResident);
+        }
     }
     
     public void toggleTopicCompletion(String topicId) {
         Topic topic = syllabusTree.findTopic(topicId);
         if (topic != null) {
             topic.setCompleted(!topic.isCompleted());
+            if (mutationListener != null) mutationListener.topicToggled(topicId);
         }
     }
     
+    /**
+     * Leaf-based progress (0-100) of the syllabus topics in memory, in pre-order;
+     * a subtree still in the catalogue is listed as its top topic
+     */
+    public Map<String, Double> getSyllabusProgressReport() {
+        return syllabusTree.getProgressIndex().getProgressReport();
+    }
+    
     // Heap Operations
     public void addWeaknessNode(String topicId, String topicName, double weakness, String subjectId, Subject subject) {
         weaknessHeap.insert(new WeaknessHeap.HeapNode(topicId, topicName, weakness, subjectId, subject));
+        if (mutationListener != null) mutationListener.weaknessAdded(topicId, topicName, weakness, subjectId);
     }
     
     public WeaknessHeap.HeapNode getNextWeakTopic() {
-        return weaknessHeap.extractMax();
+        WeaknessHeap.HeapNode next = weaknessHeap.extractMax();
+        // Recorded by id: ties may pop in a different order after a reload
+        if (mutationListener != null && next != null) mutationListener.weaknessRemoved(next.getTopicId());
+        return next;
+    }
+    
+    /**
+     * Takes the most urgent topic for review. A SpacedRepetitionQueue keeps it
+     * queued on its next schedule, recorded as a reschedule; any other queue
+     * drops it, as getNextWeakTopic does.
+     */
+    public WeaknessHeap.HeapNode reviewNextWeakTopic() {
+        if (!(weaknessHeap instanceof SpacedRepetitionQueue)) return getNextWeakTopic();
+        SpacedRepetitionQueue queue = (SpacedRepetitionQueue) weaknessHeap;
+        WeaknessHeap.HeapNode reviewed = queue.review();
+        if (mutationListener != null && reviewed != null) {
+            String id = reviewed.getTopicId();
+            mutationListener.weaknessRescheduled(id, queue.getBase(id), queue.getLastStudied(id));
+        }
+        return reviewed;
+    }
+    
+    /**
+     * Puts a queued topic on an explicit review schedule; queues without
+     * schedules only take the base weakness. Returns false if it is not queued.
+     */
+    public boolean rescheduleWeakness(String topicId, double base, long lastStudied) {
+        boolean queued = weaknessHeap instanceof SpacedRepetitionQueue
+            ? ((SpacedRepetitionQueue) weaknessHeap).reschedule(topicId, base, lastStudied)
+            : weaknessHeap.update(topicId, base);
+        if (mutationListener != null && queued) mutationListener.weaknessRescheduled(topicId, base, lastStudied);
+        return queued;
+    }
+    
+    public WeaknessHeap.HeapNode removeWeakness(String topicId) {
+        WeaknessHeap.HeapNode removed = weaknessHeap.remove(topicId);
+        if (mutationListener != null && removed != null) mutationListener.weaknessRemoved(topicId);
+        return removed;
     }
     
     public List<WeaknessHeap.HeapNode> getAllWeaknesses() {
         return weaknessHeap.getSortedNodes();
     }
     
+    /**
+     * The k highest-priority weaknesses, without sorting the whole heap.
+     */
+    public List<WeaknessHeap.HeapNode> getTopWeaknesses(int k) {
+        return weaknessHeap.topK(k);
+    }
+    
     // Statistics
-    public Map<String, Object> getDashboardStats() {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalSubjects", graph.getSubjects().size());
-        stats.put("studyPathLength", getStudyPath().size());
-        stats.put("weakTopicsCount", weaknessHeap.size());
-        stats.put("completionPercentage", syllabusTree.getOverallProgress());
+    public DashboardStats getDashboardStats() {
+        long graphVersion = graph.getVersion();
+        long heapVersion = weaknessHeap.getVersion();
+        long treeVersion = syllabusTree.getVersion();
+        if (stats != null && graphVersion == statsGraphVersion
+                && heapVersion == statsHeapVersion && treeVersion == statsTreeVersion) {
+            return stats;
+        }
+        
+        int totalSubjects = stats == null ? 0 : stats.totalSubjects();
+        int studyPathLength = stats == null ? 0 : stats.studyPathLength();
+        int weakTopicsCount = stats == null ? 0 : stats.weakTopicsCount();
+        double completion = stats == null ? 0.0 : stats.completionPercentage();
+        
+        if (graphVersion != statsGraphVersion) {
+            totalSubjects = graph.getSubjects().size();
+            studyPathLength = getStudyPath().size();
+            statsGraphVersion = graphVersion;
+        }
+        if (heapVersion != statsHeapVersion) {
+            weakTopicsCount = weaknessHeap.size();
+            statsHeapVersion = heapVersion;
+        }
+        if (treeVersion != statsTreeVersion) {
+            completion = syllabusTree.getOverallProgress();
+            statsTreeVersion = treeVersion;
+        }
+        stats = new DashboardStats(totalSubjects, studyPathLength, weakTopicsCount, completion);
         return stats;
     }
     
+    /**
+     * Receives every later mutation, e.g. a MutationJournal; null to stop
+     */
+    public void setMutationListener(MutationListener listener) { this.mutationListener = listener; }
+    
+    /**
+     * Starts a run of mutations that only needs to be durable as a whole, so
+     * a journal waits for the disk once instead of after each of them. Pair
+     * with endBatch in a finally block; runs may nest.
+     */
+    public void beginBatch() {
+        if (mutationListener != null) mutationListener.batchStarted();
+    }
+    
+    public void endBatch() {
+        if (mutationListener != null) mutationListener.batchFinished();
+    }
+    
     // Getters
     public SubjectGraph getGraph() { return graph; }
     public SyllabusTree getSyllabusTree() { return syllabusTree; }
-    public WeaknessHeap getWeaknessHeap() { return weaknessHeap; }
+    public WeaknessQueue getWeaknessHeap() { return weaknessHeap; }
     
     // Sample Data Initialization
     public void loadSampleData() {
-        // Subjects
-        addSubject("CS101", "Programming Basics", 85);
-        addSubject("CS102", "Data Structures", 65);
-        addSubject("CS201", "Algorithms", 45);
-        addSubject("CS202", "Databases", 70);
-        addSubject("CS301", "Web Development", 80);
-        
-        // Prerequisites
-        addPrerequisite("CS102", "CS101");
-        addPrerequisite("CS201", "CS102");
-        addPrerequisite("CS202", "CS102");
-        addPrerequisite("CS301", "CS101");
-        addPrerequisite("CS301", "CS202");
-        
-        // Syllabus
-        addSyllabusTopic("root", "mod1", "Programming Fundamentals");
-        addSyllabusTopic("mod1", "t1", "Variables & Types");
-        addSyllabusTopic("mod1", "t2", "Control Structures");
-        
-        addSyllabusTopic("root", "mod2", "Advanced Data Structures");
-        addSyllabusTopic("mod2", "t3", "Trees");
-        addSyllabusTopic("mod2", "t4", "Graphs");
+        beginBatch();
+        try {
+            // Subjects
+            addSubject("CS101", "Programming Basics", 85);
+            addSubject("CS102", "Data Structures", 65);
+            addSubject("CS201", "Algorithms", 45);
+            addSubject("CS202", "Databases", 70);
+            addSubject("CS301", "Web Development", 80);
+            
+            // Prerequisites
+            addPrerequisite("CS102", "CS101");
+            addPrerequisite("CS201", "CS102");
+            addPrerequisite("CS202", "CS102");
+            addPrerequisite("CS301", "CS101");
+            addPrerequisite("CS301", "CS202");
+            
+            // Syllabus
+            addSyllabusTopic("root", "mod1", "Programming Fundamentals");
+            addSyllabusTopic("mod1", "t1", "Variables & Types");
+            addSyllabusTopic("mod1", "t2", "Control Structures");
+            
+            addSyllabusTopic("root", "mod2", "Advanced Data Structures");
+            addSyllabusTopic("mod2", "t3", "Trees");
+            addSyllabusTopic("mod2", "t4", "Graphs");
+        } finally {
+            endBatch();
+        }
     }
 }
\ No newline at end of file
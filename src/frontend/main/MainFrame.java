@@ -1,25 +1,97 @@
 package frontend.main;
 
+import backend.io.PlannerStore;
 import backend.service.StudyPlannerService;
 import frontend.panels.*;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class MainFrame extends JFrame {
+    private static final Logger LOG = Logger.getLogger(MainFrame.class.getName());
+    
     private StudyPlannerService service;
+    private PlannerStore plannerStore;
     private CardLayout cardLayout;
     private JPanel mainPanel;
     private DashboardPanel dashboardPanel;
     private GraphPanel graphPanel;
     private TreePanel treePanel;
     private PlannerPanel plannerPanel;
+    private boolean backgroundFailureShown;
     
     public MainFrame() {
-        service = new StudyPlannerService();
-        service.loadSampleData();
+        plannerStore = new PlannerStore(Paths.get(System.getProperty("user.home"), ".study-planner"));
+        service = loadService();
         
         initializeUI();
+        
+        // A failed journal write reaches the edit that caused it as an UncheckedIOException
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> {
+            LOG.log(Level.SEVERE, "Uncaught exception in " + thread.getName(), e);
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof UncheckedIOException) {
+                    SwingUtilities.invokeLater(() -> showPersistenceError(
+                        "Your last change could not be saved to disk.", e));
+                    return;
+                }
+            }
+        });
+        
+        addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                saveService();
+            }
+        });
+    }
+    
+    /**
+     * Last session's state (snapshot plus journal) if there is one, otherwise
+     * the sample data; every edit from here on is journaled
+     */
+    private StudyPlannerService loadService() {
+        try {
+            StudyPlannerService restored = plannerStore.open();
+            if (!plannerStore.isRestored()) {
+                restored.loadSampleData();
+            }
+            plannerStore.setBackgroundFailureHandler(e -> SwingUtilities.invokeLater(() -> {
+                if (backgroundFailureShown) return; // logged each time, shown once
+                backgroundFailureShown = true;
+                showPersistenceError("Saving a snapshot of your planner failed.\n"
+                    + "Your changes are still kept in the journal.", e);
+            }));
+            return restored;
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.SEVERE, "Could not open saved planner data", e);
+            showPersistenceError("Could not open your saved planner data.\n"
+                + "Starting with sample data; changes in this session will not be saved.", e);
+            plannerStore = null; // run without persistence
+        }
+        StudyPlannerService fresh = new StudyPlannerService();
+        fresh.loadSampleData();
+        return fresh;
+    }
+    
+    private void saveService() {
+        if (plannerStore == null) return;
+        try {
+            plannerStore.close();
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.SEVERE, "Could not save planner data", e);
+            showPersistenceError("Could not save your planner on exit.\n"
+                + "Unsaved changes are replayed from the journal next time if it is intact.", e);
+        }
+    }
+    
+    private void showPersistenceError(String message, Throwable e) {
+        JOptionPane.showMessageDialog(this, message + "\n\n" + e.getMessage(),
+            "Storage Error", JOptionPane.ERROR_MESSAGE);
     }
     
     private void initializeUI() {
@@ -32,7 +104,7 @@ public class MainFrame extends JFrame {
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.log(Level.FINE, "System look and feel unavailable", e);
         }
         
         setLayout(new BorderLayout());
@@ -1,14 +1,15 @@
 package frontend.panels;
 
+import backend.service.DashboardStats;
 import backend.service.StudyPlannerService;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.geom.RoundRectangle2D;
-import java.util.Map;
 
 public class DashboardPanel extends JPanel {
     private StudyPlannerService service;
     private ModernCard subjectCard, pathCard, weakCard, completionCard;
+    private DashboardStats shownStats;
 
     public DashboardPanel(StudyPlannerService service) {
         this.service = service;
@@ -34,11 +35,13 @@ public class DashboardPanel extends JPanel {
     }
 
     public void refreshStats() {
-        Map<String, Object> stats = service.getDashboardStats();
-        subjectCard.setValue(String.valueOf(stats.get("totalSubjects")));
-        pathCard.setValue(String.valueOf(stats.get("studyPathLength")));
-        weakCard.setValue(String.valueOf(stats.get("weakTopicsCount")));
-        completionCard.setValue(String.format("%.1f%%", stats.get("completionPercentage")));
+        DashboardStats stats = service.getDashboardStats();
+        if (stats == shownStats) return; // Cached instance: nothing changed
+        shownStats = stats;
+        subjectCard.setValue(String.valueOf(stats.totalSubjects()));
+        pathCard.setValue(String.valueOf(stats.studyPathLength()));
+        weakCard.setValue(String.valueOf(stats.weakTopicsCount()));
+        completionCard.setValue(String.format("%.1f%%", stats.completionPercentage()));
         repaint();
     }
 
@@ -1,5 +1,6 @@
 package frontend.panels;
 
+import backend.datastructure.GraphSnapshot;
 import backend.model.Subject;
 import backend.service.StudyPlannerService;
 import javax.swing.*;
@@ -63,7 +64,7 @@ public class GraphPanel extends JPanel {
     }
     
     private void showAddPrerequisiteDialog() {
-        java.util.List<Subject> subjects = new ArrayList<>(service.getGraph().getSubjects().values());
+        java.util.List<Subject> subjects = new ArrayList<>(service.getGraph().snapshot().getSubjects().values());
         if (subjects.size() < 2) return;
         
         JComboBox<Subject> subjBox = new JComboBox<>(subjects.toArray(new Subject[0]));
@@ -111,9 +112,10 @@ public class GraphPanel extends JPanel {
                     double modelX = (e.getX() - translateX) / zoomFactor;
                     double modelY = (e.getY() - translateY) / zoomFactor;
 
-                    for (Subject s : service.getGraph().getSubjects().values()) {
+                    for (Subject s : service.getGraph().snapshot().getSubjects().values()) {
                         if (distance(modelX, modelY, s.getX(), s.getY()) < 30) {
-                            selected = s;
+                            // Snapshot subjects are copies; drag the live one
+                            selected = service.getGraph().getSubjects().get(s.getId());
                             break;
                         }
                     }
@@ -177,14 +179,17 @@ public class GraphPanel extends JPanel {
             g2d.translate(translateX, translateY);
             g2d.scale(zoomFactor, zoomFactor);
 
+            // Paint one consistent version of the graph
+            GraphSnapshot snapshot = service.getGraph().snapshot();
+
             // Draw edges
             g2d.setStroke(new BasicStroke(2));
-            for (Map.Entry<String, List<String>> entry : service.getGraph().getAdjacencyList().entrySet()) {
-                Subject source = service.getGraph().getSubjects().get(entry.getKey());
+            for (Map.Entry<String, List<String>> entry : snapshot.getAdjacencyList().entrySet()) {
+                Subject source = snapshot.getSubject(entry.getKey());
                 if (source == null) continue;
                 
                 for (String destId : entry.getValue()) {
-                    Subject dest = service.getGraph().getSubjects().get(destId);
+                    Subject dest = snapshot.getSubject(destId);
                     if (dest != null) {
                         g2d.setColor(new Color(149, 165, 166));
                         drawArrow(g2d, source.getX(), source.getY(), dest.getX(), dest.getY());
@@ -193,7 +198,7 @@ public class GraphPanel extends JPanel {
             }
             
             // Draw nodes
-            for (Subject s : service.getGraph().getSubjects().values()) {
+            for (Subject s : snapshot.getSubjects().values()) {
                 int size = (int)(40 + (100 - s.getScore()) / 5);
                 int green = Math.max(0, Math.min(255, (int)(s.getScore() * 2.55)));
                 int red = Math.max(0, Math.min(255, 255 - green));
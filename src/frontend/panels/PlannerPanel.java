@@ -9,6 +9,8 @@ import javax.swing.border.TitledBorder;
 import java.awt.*;
 
 public class PlannerPanel extends JPanel {
+    private static final int SHOWN_WEAKNESSES = 20; // Rows the red gradient covers
+    
     private StudyPlannerService service;
     private DefaultListModel<String> pathModel;
     private DefaultListModel<String> weakModel;
@@ -83,7 +85,7 @@ public class PlannerPanel extends JPanel {
     
     public void updateWeaknessList() {
         weakModel.clear();
-        java.util.List<WeaknessHeap.HeapNode> nodes = service.getAllWeaknesses();
+        java.util.List<WeaknessHeap.HeapNode> nodes = service.getTopWeaknesses(SHOWN_WEAKNESSES);
         int rank = 1;
         for (WeaknessHeap.HeapNode node : nodes) {
             weakModel.addElement(String.format("#%d %s (Weakness: %.1f)", 
@@ -92,7 +94,7 @@ public class PlannerPanel extends JPanel {
     }
     
     private void studyNext() {
-        WeaknessHeap.HeapNode next = service.getNextWeakTopic();
+        WeaknessHeap.HeapNode next = service.reviewNextWeakTopic();
         if (next != null) {
             JOptionPane.showMessageDialog(this, 
                 "Next topic to study:\n" + next.getTopicName() + 
@@ -4,14 +4,22 @@ import frontend.renders.ColoredTreeCellRenderer;
 import backend.model.Topic;
 import backend.service.StudyPlannerService;
 import javax.swing.*;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.tree.*;
 import java.awt.*;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 public class TreePanel extends JPanel {
     private StudyPlannerService service;
     private JTree tree;
     private DefaultTreeModel treeModel;
     private DefaultMutableTreeNode rootNode;
+    private Map<DefaultMutableTreeNode, String> topicIds = new HashMap<>(); // placeholders have none
     
     public TreePanel(StudyPlannerService service) {
         this.service = service;
@@ -37,31 +45,66 @@ public class TreePanel extends JPanel {
         tree = new JTree(treeModel);
         tree.setCellRenderer((TreeCellRenderer) new ColoredTreeCellRenderer());
         tree.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        tree.addTreeWillExpandListener(new TreeWillExpandListener() {
+            @Override
+            public void treeWillExpand(TreeExpansionEvent event) {
+                populate((DefaultMutableTreeNode) event.getPath().getLastPathComponent());
+            }
+            
+            @Override
+            public void treeWillCollapse(TreeExpansionEvent event) {}
+        });
         
         refreshTree();
         
         add(new JScrollPane(tree), BorderLayout.CENTER);
     }
     
+    /**
+     * Rebuilds the visible levels only; a collapsed topic gets a placeholder
+     * child and its children are fetched (and lazily loaded) on expansion.
+     * Rows that were open stay open, as do topics already in memory.
+     */
     public void refreshTree() {
+        Set<String> expanded = new HashSet<>();
+        Enumeration<TreePath> open = tree.getExpandedDescendants(new TreePath(rootNode));
+        while (open != null && open.hasMoreElements()) {
+            expanded.add(topicIds.get((DefaultMutableTreeNode) open.nextElement().getLastPathComponent()));
+        }
+        
+        Topic root = service.getSyllabusTree().getRoot();
         rootNode.removeAllChildren();
-        buildTree(rootNode, service.getSyllabusTree().getRoot());
+        topicIds.clear();
+        topicIds.put(rootNode, root.getId());
+        addChildren(rootNode, root);
         treeModel.reload();
-        expandAll();
+        
+        for (int i = 0; i < tree.getRowCount(); i++) {
+            String id = topicIds.get((DefaultMutableTreeNode) tree.getPathForRow(i).getLastPathComponent());
+            Topic topic = id == null ? null : service.getSyllabusTree().findTopic(id);
+            if (topic != null && (expanded.contains(id) || topic.isLoaded())) {
+                tree.expandRow(i);
+            }
+        }
     }
     
-    private void buildTree(DefaultMutableTreeNode parent, Topic topic) {
+    private void populate(DefaultMutableTreeNode node) {
+        if (node.getChildCount() != 1 || topicIds.containsKey((DefaultMutableTreeNode) node.getFirstChild())) return;
+        node.removeAllChildren();
+        Topic topic = service.getSyllabusTree().findTopic(topicIds.get(node));
+        if (topic != null) addChildren(node, topic);
+        treeModel.nodeStructureChanged(node);
+    }
+    
+    private void addChildren(DefaultMutableTreeNode parent, Topic topic) {
         for (Topic child : topic.getChildren()) {
             DefaultMutableTreeNode node = new DefaultMutableTreeNode(child.getTitle());
             node.setUserObject(child.isCompleted()); // Store completion status
+            topicIds.put(node, child.getId());
+            if (child.getChildCount() > 0) {
+                node.add(new DefaultMutableTreeNode("...")); // replaced when expanded
+            }
             parent.add(node);
-            buildTree(node, child);
-        }
-    }
-    
-    private void expandAll() {
-        for (int i = 0; i < tree.getRowCount(); i++) {
-            tree.expandRow(i);
         }
     }
     